@@ -0,0 +1,65 @@
+package ups.papersoda.netter.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ups.papersoda.netter.domain.*;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.generator.TrafficGenerator;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NetworkBenchmark {
+    private static final int PACKETS = 1024;
+
+    /**
+     * LEGACY is today's {@link RoutingTable} as the application runs it: not converged up front, routers exchange
+     * routes as packets arrive. The others are converged up front.
+     */
+    @Param({"LEGACY", "DENSE", "VERSIONED", "LINK_STATE"})
+    public String routingTable;
+
+    private Network network;
+    private List<Packet> packets;
+
+
+    @Setup
+    public void setUp(final TopologyState topology) {
+        network = new Network(new RouterMapper(), topology.routerDTOs, routingTableFactory());
+        if (!"LEGACY".equals(routingTable))
+            network.convergeRoutingTable();
+
+        packets = new TrafficGenerator(7L).uniform(topology.routerDTOs, PACKETS).collect(Collectors.toList());
+    }
+
+    private Function<Collection<? extends Router>, ? extends IRoutingTable> routingTableFactory() {
+        switch (routingTable) {
+            case "LEGACY": return RoutingTable::createRoutingTable;
+            case "DENSE": return DenseRoutingTable::createRoutingTable;
+            case "VERSIONED": return VersionedRoutingTable::createRoutingTable;
+            case "LINK_STATE": return LinkStateRoutingTable::createRoutingTable;
+            default: throw new IllegalArgumentException("benchmark: unknown routing table " + routingTable);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void resetPackets() {
+        packets.forEach(packet -> packet.reset(packet.getId(), packet.getSourceId(), packet.getDestId()));
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public List<Packet> beingPacketTransmission() {
+        network.beingPacketTransmission(packets);
+        return packets;
+    }
+}
@@ -0,0 +1,26 @@
+package ups.papersoda.netter.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ups.papersoda.netter.domain.Router;
+import ups.papersoda.netter.domain.mapper.IndexedRouterMapper;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterMapperBenchmark {
+    @Benchmark
+    public Map<Long, Router> transformToRouters(final TopologyState topology) {
+        return new RouterMapper().transformToRouters(topology.routerDTOs);
+    }
+
+    @Benchmark
+    public Map<Long, Router> indexedTransformToRouters(final TopologyState topology) {
+        return new IndexedRouterMapper().transformToRouters(topology.routerDTOs);
+    }
+}
@@ -0,0 +1,80 @@
+package ups.papersoda.netter.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.Router;
+import ups.papersoda.netter.domain.RoutingTable;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Legacy routing table. Runs on tables fresh from {@link RoutingTable#createRoutingTable}: repeated exchanges do not
+ * settle on every shape, so tryUpdateTable is measured as the first exchange of a router with its neighbours.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoutingTableBenchmark {
+    private static final int PACKETS = 1024;
+
+    private List<Router> routers;
+    private RoutingTable routingTable;
+    private Router[] sources;
+    private Packet[] packets;
+    private int next;
+
+
+    @Setup
+    public void setUp(final TopologyState topology) {
+        routers = new ArrayList<>(new RouterMapper().transformToRouters(topology.routerDTOs).values());
+        routingTable = RoutingTable.createRoutingTable(routers);
+        routers.forEach(router -> router.setRoutingTable(routingTable));
+
+        final Random random = new Random(7L);
+        sources = new Router[PACKETS];
+        packets = new Packet[PACKETS];
+        for (int i = 0; i < PACKETS; i++) {
+            sources[i] = routers.get(random.nextInt(routers.size()));
+            packets[i] = new Packet(i, sources[i].id(), routers.get(random.nextInt(routers.size())).id());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FreshRoutingTable {
+        private RoutingTable routingTable;
+        private Router router;
+        private int next;
+
+
+        @Setup(Level.Invocation)
+        public void setUp(final RoutingTableBenchmark benchmark) {
+            next = (next + 1) % PACKETS;
+            router = benchmark.sources[next];
+            routingTable = RoutingTable.createRoutingTable(benchmark.routers);
+        }
+    }
+
+
+    @Benchmark
+    public RoutingTable createRoutingTable() {
+        return RoutingTable.createRoutingTable(routers);
+    }
+
+    @Benchmark
+    public boolean tryUpdateTable(final FreshRoutingTable fresh) {
+        return fresh.routingTable.tryUpdateTable(fresh.router);
+    }
+
+    @Benchmark
+    public Long getNextHop() {
+        next = (next + 1) % PACKETS;
+        return routingTable.getNextHop(sources[next], packets[next]);
+    }
+}
@@ -0,0 +1,53 @@
+package ups.papersoda.netter.benchmark;
+
+import ups.papersoda.netter.dto.RouterDTO;
+import ups.papersoda.netter.generator.TopologyGenerator;
+import ups.papersoda.netter.generator.WeightDistribution;
+
+import java.util.List;
+
+/**
+ * Topology shapes the benchmarks run on, link weights are 1..10.
+ */
+public enum Topology {
+    RING {
+        @Override
+        List<RouterDTO> generate(final TopologyGenerator generator, final int size) {
+            return generator.ring(size);
+        }
+    },
+    /**
+     * square-ish grid with at least size routers
+     */
+    GRID {
+        @Override
+        List<RouterDTO> generate(final TopologyGenerator generator, final int size) {
+            final int width = (int)Math.ceil(Math.sqrt(size));
+            return generator.grid(width, (size + width - 1) / width);
+        }
+    },
+    /**
+     * Erdős–Rényi with four links per router on average
+     */
+    RANDOM {
+        @Override
+        List<RouterDTO> generate(final TopologyGenerator generator, final int size) {
+            return generator.erdosRenyi(size, Math.min(1, 4.0 / size));
+        }
+    },
+    SCALE_FREE {
+        @Override
+        List<RouterDTO> generate(final TopologyGenerator generator, final int size) {
+            return generator.barabasiAlbert(size, 2);
+        }
+    };
+
+    private static final long SEED = 42L;
+
+
+    abstract List<RouterDTO> generate(TopologyGenerator generator, int size);
+
+    public List<RouterDTO> routerDTOs(final int size) {
+        return generate(new TopologyGenerator(SEED, WeightDistribution.uniform(1, 10)), size);
+    }
+}
@@ -0,0 +1,26 @@
+package ups.papersoda.netter.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ups.papersoda.netter.dto.RouterDTO;
+
+import java.util.List;
+
+@State(Scope.Benchmark)
+public class TopologyState {
+    @Param({"64", "256"})
+    public int size;
+
+    @Param({"RING", "GRID", "RANDOM", "SCALE_FREE"})
+    public Topology topology;
+
+    public List<RouterDTO> routerDTOs;
+
+
+    @Setup
+    public void setUp() {
+        routerDTOs = topology.routerDTOs(size);
+    }
+}
@@ -1,11 +1,26 @@
 package ups.papersoda.netter;
 
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ListableBeanFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import ups.papersoda.netter.domain.Network;
+import ups.papersoda.netter.metrics.NetworkMeterBinder;
 
 @SpringBootApplication
 public class NetterApplication {
     public static void main(String[] args) {
         SpringApplication.run(NetterApplication.class, args);
     }
+
+    /**
+     * Publishes the metrics of every network bean, tagged with the bean name so networks don't share meters.
+     */
+    @Bean
+    public MeterBinder networkMeters(final ListableBeanFactory beans) {
+        return registry -> beans.getBeansOfType(Network.class)
+                .forEach((name, network) -> new NetworkMeterBinder(network, Tags.of("network", name)).bindTo(registry));
+    }
 }
@@ -1,10 +1,18 @@
 package ups.papersoda.netter.domain;
 
+import java.util.concurrent.atomic.LongAdder;
+
 public class Connection {
+    public static final int NO_LATENCY = -1;
+
     private long id;
     private int weight;
+    private int latency = NO_LATENCY;
     private final long toRouter;
     private final long fromRouter;
+    private final LongAdder transferredPackets = new LongAdder();
+    private final LongAdder transferredBytes = new LongAdder();
+    private LinkQueue queue;
 
 
     public Connection(int weight, long toRouter, long fromRouter) {
@@ -26,12 +34,40 @@ public class Connection {
     public void setWeight(int weight) {
         this.weight = weight;
     }
+    /**
+     * Transit time of the link in simulated time units, the weight unless a latency was set.
+     */
+    public int getLatency() {
+        return latency == NO_LATENCY ? weight : latency;
+    }
+    public void setLatency(int latency) {
+        this.latency = latency;
+    }
     public long getToRouter() {
         return toRouter;
     }
     public long getFromRouter() {
         return fromRouter;
     }
+    public void recordTransfer(final Packet packet) {
+        transferredPackets.increment();
+        transferredBytes.add(packet.getPayloadSize());
+    }
+    public long getTransferredPackets() {
+        return transferredPackets.sum();
+    }
+    public long getTransferredBytes() {
+        return transferredBytes.sum();
+    }
+    /**
+     * Output queue the packet simulation sends over, null for a link of unlimited capacity.
+     */
+    public LinkQueue getQueue() {
+        return queue;
+    }
+    public void setQueue(LinkQueue queue) {
+        this.queue = queue;
+    }
 
 
     @Override
@@ -39,6 +75,7 @@ public class Connection {
         return "Connection{" +
                 "id=" + id +
                 ", weight=" + weight +
+                ", latency=" + getLatency() +
                 ", toRouter=" + toRouter +
                 ", fromRouter=" + fromRouter +
                 '}';
@@ -0,0 +1,240 @@
+package ups.papersoda.netter.domain;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable compressed sparse row adjacency over router indices: the links of router i are the arcs in
+ * [start(i), end(i)), each with its neighbour index, weight and whether the router can forward over it.
+ * Links are undirected, a link present in both directions keeps the cheaper weight.
+ * <p>
+ * Routers a graph is built from get attached to it, so every table built over the same routers shares one graph until
+ * a router's neighbours or a link weight change.
+ */
+public class CsrGraph {
+    private final RouterIndex index;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final boolean[] outgoing;
+    /**
+     * neighbourLinks[arc] as the neighbour entry of the arc's router, null for links that are only incoming
+     */
+    private final Pair<Router, Connection>[] neighbourLinks;
+    /**
+     * Every connection the graph was built from with its weight at the time, to tell when the graph went stale
+     */
+    private final Connection[] connections;
+    private final int[] connectionWeights;
+
+
+    private CsrGraph(
+            RouterIndex index, int[] offsets, int[] targets, int[] weights, boolean[] outgoing,
+            Pair<Router, Connection>[] neighbourLinks, Connection[] connections, int[] connectionWeights
+    ) {
+        this.index = index;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.outgoing = outgoing;
+        this.neighbourLinks = neighbourLinks;
+        this.connections = connections;
+        this.connectionWeights = connectionWeights;
+    }
+
+
+    /**
+     * Graph the routers are attached to, built and attached when they don't share one yet.
+     */
+    public static CsrGraph of(final Collection<? extends Router> routers) {
+        final CsrGraph shared = sharedGraph(routers);
+        if (shared != null)
+            return shared;
+
+        final CsrGraph graph = of(routers, RouterIndex.of(routers));
+        for (Router router : routers)
+            router.attachGraph(graph, graph.index.indexOf(router.id()));
+        return graph;
+    }
+
+    /**
+     * Builds a graph over the given index, routers missing from it are left out.
+     */
+    public static CsrGraph of(final Collection<? extends Router> routers, final RouterIndex index) {
+        final int size = index.size();
+        final int[] arcCounts = new int[size + 1];
+        for (Router router : routers) {
+            final int from = index.indexOf(router.id());
+            if (from == RouterIndex.NO_INDEX)
+                continue;
+            for (Pair<Router, Connection> neighbour : router.getNeighbourLinks()) {
+                final int to = index.indexOf(neighbour.getKey().id());
+                if (to == RouterIndex.NO_INDEX || to == from)
+                    continue;
+                arcCounts[from + 1]++;
+                arcCounts[to + 1]++;
+            }
+        }
+        for (int i = 0; i < size; i++)
+            arcCounts[i + 1] += arcCounts[i];
+
+        final int arcCount = arcCounts[size];
+        final int[] targets = new int[arcCount];
+        final int[] weights = new int[arcCount];
+        final Pair<Router, Connection>[] neighbourLinks = newLinkArray(arcCount);
+        final Connection[] connections = new Connection[arcCount / 2];
+        final int[] connectionWeights = new int[arcCount / 2];
+        int connectionCount = 0;
+        final int[] next = Arrays.copyOf(arcCounts, size);
+        for (Router router : routers) {
+            final int from = index.indexOf(router.id());
+            if (from == RouterIndex.NO_INDEX)
+                continue;
+            for (Pair<Router, Connection> neighbour : router.getNeighbourLinks()) {
+                final int to = index.indexOf(neighbour.getKey().id());
+                if (to == RouterIndex.NO_INDEX || to == from)
+                    continue;
+                final int weight = neighbour.getValue().getWeight();
+                addArc(next[from]++, to, weight, neighbour, targets, weights, neighbourLinks);
+                addArc(next[to]++, from, weight, null, targets, weights, neighbourLinks);
+                connections[connectionCount] = neighbour.getValue();
+                connectionWeights[connectionCount++] = weight;
+            }
+        }
+
+        return compact(index, arcCounts, targets, weights, neighbourLinks, connections, connectionWeights);
+    }
+
+    private static CsrGraph sharedGraph(final Collection<? extends Router> routers) {
+        if (routers.isEmpty())
+            return null;
+        final CsrGraph graph = routers.iterator().next().getGraph();
+        if (graph == null || graph.size() != routers.size() || !graph.hasCurrentWeights())
+            return null;
+        for (Router router : routers)
+            if (router.getGraph() != graph)
+                return null;
+        return graph;
+    }
+
+    private static void addArc(
+            int arc, int to, int weight, Pair<Router, Connection> neighbourLink,
+            int[] targets, int[] weights, Pair<Router, Connection>[] neighbourLinks
+    ) {
+        targets[arc] = to;
+        weights[arc] = weight;
+        neighbourLinks[arc] = neighbourLink;
+    }
+
+    /**
+     * Merges repeated links of a router in place, then packs the rows.
+     */
+    private static CsrGraph compact(
+            RouterIndex index, int[] arcCounts, int[] targets, int[] weights, Pair<Router, Connection>[] neighbourLinks,
+            Connection[] connections, int[] connectionWeights
+    ) {
+        final int size = index.size();
+        final int[] offsets = new int[size + 1];
+        final int[] seenBy = new int[size];
+        final int[] seenAt = new int[size];
+        Arrays.fill(seenBy, RouterIndex.NO_INDEX);
+
+        int unique = 0;
+        for (int router = 0; router < size; router++) {
+            offsets[router] = unique;
+            for (int arc = arcCounts[router]; arc < arcCounts[router + 1]; arc++) {
+                final int to = targets[arc];
+                if (seenBy[to] == router) {
+                    final int slot = seenAt[to];
+                    weights[slot] = Math.min(weights[slot], weights[arc]);
+                    if (neighbourLinks[slot] == null)
+                        neighbourLinks[slot] = neighbourLinks[arc];
+                    continue;
+                }
+                seenBy[to] = router;
+                seenAt[to] = unique;
+                addArc(unique++, to, weights[arc], neighbourLinks[arc], targets, weights, neighbourLinks);
+            }
+        }
+        offsets[size] = unique;
+
+        final boolean[] outgoing = new boolean[unique];
+        for (int arc = 0; arc < unique; arc++)
+            outgoing[arc] = neighbourLinks[arc] != null;
+
+        return new CsrGraph(
+                index,
+                offsets,
+                Arrays.copyOf(targets, unique),
+                Arrays.copyOf(weights, unique),
+                outgoing,
+                Arrays.copyOf(neighbourLinks, unique),
+                connections,
+                connectionWeights
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Pair<Router, Connection>[] newLinkArray(final int length) {
+        return new Pair[length];
+    }
+
+    /**
+     * Whether every connection still has the weight the graph was built with.
+     */
+    public boolean hasCurrentWeights() {
+        for (int i = 0; i < connections.length; i++)
+            if (connections[i].getWeight() != connectionWeights[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Link weights as built, for tables that change weights on their own copy.
+     */
+    public int[] copyWeights() {
+        return weights.clone();
+    }
+
+    public int start(final int router) {
+        return offsets[router];
+    }
+    public int end(final int router) {
+        return offsets[router + 1];
+    }
+    public int degree(final int router) {
+        return offsets[router + 1] - offsets[router];
+    }
+    public int target(final int arc) {
+        return targets[arc];
+    }
+    public int weight(final int arc) {
+        return weights[arc];
+    }
+    public boolean isOutgoing(final int arc) {
+        return outgoing[arc];
+    }
+    public Pair<Router, Connection> neighbourLink(final int arc) {
+        return neighbourLinks[arc];
+    }
+    public RouterIndex getRouterIndex() {
+        return index;
+    }
+    public int size() {
+        return index.size();
+    }
+    public int arcCount() {
+        return targets.length;
+    }
+
+
+    @Override
+    public String toString() {
+        return "CsrGraph{" +
+                "routers=" + index.size() +
+                ", arcs=" + targets.length +
+                '}';
+    }
+}
@@ -0,0 +1,591 @@
+package ups.papersoda.netter.domain;
+
+import org.apache.commons.lang3.tuple.Pair;
+import ups.papersoda.netter.domain.routing.ShortestPathRepair;
+
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * Routing table keeping distances and next hops in flat row-major matrices indexed through a {@link RouterIndex}.
+ * Links come from a {@link CsrGraph}, the table keeps its own copy of their weights for bond updates.
+ */
+public class DenseRoutingTable implements IRoutingTable {
+    public static final int NO_HOP = -1;
+    public static final int NO_LINK = -1;
+    /**
+     * Largest array length every JVM allocates, some reserve header words in the array
+     */
+    private static final long MAX_MATRIX_SIZE = Integer.MAX_VALUE - 8;
+
+    private final RouterIndex index;
+    private final int size;
+    /**
+     * distances[fromIndex * size + toIndex], NO_CONNECTION while unknown
+     */
+    private final int[] distances;
+    /**
+     * nextHops[fromIndex * size + toIndex] as router index, NO_HOP while unknown
+     */
+    private final int[] nextHops;
+    private final CsrGraph graph;
+    /**
+     * Current weight per arc of the graph, starts as built and follows bond updates
+     */
+    private final int[] linkWeights;
+    private final boolean[] removed;
+    /**
+     * Rows written since they were last collected through {@link #takeRowChange(int)}
+     */
+    private final boolean[] changedRows;
+    private ForwardingTable forwarding;
+    private ShortestPathRepair repair;
+    private boolean converged;
+    private boolean multipath;
+
+
+    private DenseRoutingTable(CsrGraph graph) {
+        this.graph = graph;
+        this.index = graph.getRouterIndex();
+        this.size = index.size();
+        this.distances = new int[matrixSize(size)];
+        this.nextHops = new int[matrixSize(size)];
+        this.linkWeights = graph.copyWeights();
+        this.removed = new boolean[size];
+        this.changedRows = new boolean[size];
+    }
+
+
+    private static int matrixSize(final int size) {
+        final long matrixSize = (long)size * size;
+        if (matrixSize > MAX_MATRIX_SIZE)
+            throw new IllegalArgumentException("routing table: " + size + " routers are too many routers for a dense table");
+        return (int)matrixSize;
+    }
+
+    public static DenseRoutingTable createRoutingTable(final Collection<? extends Router> routers) {
+        if (routers.isEmpty())
+            throw new IllegalArgumentException("routing table: no routers provided");
+        return createRoutingTable(CsrGraph.of(routers));
+    }
+
+    /**
+     * Creates the table over a given index, e.g. one restored together with routes, routers missing from it are left out.
+     */
+    public static DenseRoutingTable createRoutingTable(final Collection<? extends Router> routers, final RouterIndex index) {
+        return createRoutingTable(CsrGraph.of(routers, index));
+    }
+
+    public static DenseRoutingTable createRoutingTable(final CsrGraph graph) {
+        if (graph.size() == 0)
+            throw new IllegalArgumentException("routing table: no routers provided");
+
+        final DenseRoutingTable routingTable = new DenseRoutingTable(graph);
+        routingTable.seedNeighbourDistances();
+        return routingTable;
+    }
+
+    private void seedNeighbourDistances() {
+        Arrays.fill(changedRows, true);
+        Arrays.fill(distances, NO_CONNECTION);
+        Arrays.fill(nextHops, NO_HOP);
+        for (int from = 0; from < size; from++) {
+            if (removed[from])
+                continue;
+            distances[from * size + from] = 0;
+            nextHops[from * size + from] = from;
+            for (int arc = graph.start(from); arc < graph.end(from); arc++) {
+                if (removed[graph.target(arc)] || isLinkDown(arc))
+                    continue;
+                distances[from * size + graph.target(arc)] = linkWeights[arc];
+                nextHops[from * size + graph.target(arc)] = graph.target(arc);
+            }
+        }
+    }
+
+    public boolean tryUpdateTable(final Router currentRouter) {
+        final int from = row(currentRouter.id());
+        boolean tableWasUpdated = false;
+
+        for (int arc = graph.start(from); arc < graph.end(from); arc++) {
+            final int neighbour = graph.target(arc);
+            if (removed[neighbour] || isLinkDown(arc))
+                continue;
+
+            final int costToNeighbour = linkWeights[arc];
+            final int neighbourRow = neighbour * size;
+            final int currentRow = from * size;
+
+            for (int to = 0; to < size; to++) {
+                if (to == from || removed[to])
+                    continue;
+
+                final int neighbourDistance = distances[neighbourRow + to];
+                if (neighbourDistance == NO_CONNECTION)
+                    continue;
+
+                final int possibleShortestPath = neighbourDistance + costToNeighbour;
+                final int currentShortestPath = distances[currentRow + to];
+                if (currentShortestPath != NO_CONNECTION && currentShortestPath <= possibleShortestPath)
+                    continue;
+
+                setShortestPath(from, neighbour, to, possibleShortestPath);
+                tableWasUpdated = true;
+            }
+        }
+
+        return tableWasUpdated;
+    }
+
+    public Long getNextHop(final Router currentRouter, final Packet packet) {
+        final int link = forwardingLink(row(currentRouter.id()), packet);
+        return link == NO_LINK ? null : index.idOf(graph.target(link));
+    }
+
+    @Override
+    public Pair<Router, Connection> getNextNeighbour(final Router currentRouter, final Packet packet) {
+        final int link = forwardingLink(row(currentRouter.id()), packet);
+        return link == NO_LINK ? null : graph.neighbourLink(link);
+    }
+
+    private int forwardingLink(final int from, final Packet packet) {
+        final int to = column(packet.getDestId());
+        return multipath ? multipathLink(from, to, packet.getFlowHash()) : forwardingLink(from, to);
+    }
+
+    /**
+     * Reads the compiled forwarding table once the table converged, scans the links while routes still change.
+     */
+    private int forwardingLink(final int from, final int to) {
+        if (converged && !forwarding.isDirty())
+            return forwarding.link(from, to);
+        return nextHopLink(from, to);
+    }
+
+    public int nextHopIndex(final int from, final int to) {
+        final int link = nextHopLink(from, to);
+        return link == NO_LINK ? NO_HOP : graph.target(link);
+    }
+
+    /**
+     * Arc of the outgoing link with the lowest link weight plus advertised distance to the destination,
+     * ties keep the first link.
+     */
+    public int nextHopLink(final int from, final int to) {
+        int nextHop = NO_LINK;
+        long currentMin = Long.MAX_VALUE;
+
+        for (int arc = graph.start(from); arc < graph.end(from); arc++) {
+            final long cost = linkCost(arc, to);
+            if (cost >= currentMin)
+                continue;
+
+            currentMin = cost;
+            nextHop = arc;
+        }
+
+        return nextHop;
+    }
+
+    /**
+     * Equal-cost multipath: one of the outgoing links with the lowest cost to the destination, picked by the flow hash
+     * so every packet of a flow takes the same link. The hash is salted per router, so routers along a path split
+     * flows independently of each other.
+     */
+    public int multipathLink(final int from, final int to, final long flowHash) {
+        long currentMin = Long.MAX_VALUE;
+        int equalCostLinks = 0;
+
+        for (int arc = graph.start(from); arc < graph.end(from); arc++) {
+            final long cost = linkCost(arc, to);
+            if (cost > currentMin)
+                continue;
+            if (cost < currentMin) {
+                currentMin = cost;
+                equalCostLinks = 0;
+            }
+            equalCostLinks++;
+        }
+        if (currentMin == Long.MAX_VALUE)
+            return NO_LINK;
+
+        long hash = flowHash + (from + 1L) * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        int pick = (int)Long.remainderUnsigned(hash ^ (hash >>> 31), equalCostLinks);
+        for (int arc = graph.start(from); ; arc++)
+            if (linkCost(arc, to) == currentMin && pick-- == 0)
+                return arc;
+    }
+
+    /**
+     * @return link weight plus advertised distance to the destination, Long.MAX_VALUE when the arc can't get there
+     */
+    private long linkCost(final int arc, final int to) {
+        final int neighbour = graph.target(arc);
+        if (!graph.isOutgoing(arc) || removed[neighbour] || isLinkDown(arc))
+            return Long.MAX_VALUE;
+        final int neighbourDistance = distances[neighbour * size + to];
+        if (neighbourDistance == NO_CONNECTION)
+            return Long.MAX_VALUE;
+        return (long)linkWeights[arc] + neighbourDistance;
+    }
+
+    public Long getNextShortestPathRouter(final long from, final long to) {
+        final int nextHop = nextHops[row(from) * size + column(to)];
+        return nextHop == NO_HOP ? null : index.idOf(nextHop);
+    }
+
+    public Number getCurrentShortestPathDistance(final long from, final long to) {
+        return distance(row(from), column(to));
+    }
+
+    public Number getRouterDistance(final long fromRouter, final long toRouter) {
+        return distance(row(fromRouter), column(toRouter));
+    }
+
+    public Number getDistanceFromRouterToNeighbour(final long routerId, final long neighbourId) {
+        return distance(row(routerId), column(neighbourId));
+    }
+
+    @Override
+    public Number getLinkWeight(final long router, final long neighbour) {
+        return linkWeightBetween(row(router), row(neighbour));
+    }
+
+    public void setNewShortestPath(long currentRouter, long neighbour, long associateRouterId, Number newShortestPath) {
+        setShortestPath(row(currentRouter), column(neighbour), row(associateRouterId), newShortestPath.intValue());
+    }
+
+    /**
+     * Sets the route of the current router and mirrors it to the associate router when the associate already knows
+     * the way back to the neighbour, its next hop is then the one it takes towards the neighbour. Otherwise the
+     * associate's row is left to converge by itself.
+     */
+    private void setShortestPath(final int currentRouter, final int neighbour, final int associateRouter, final int newShortestPath) {
+        converged = false;
+        invalidateDestination(associateRouter);
+        changedRows[currentRouter] = true;
+        distances[currentRouter * size + associateRouter] = newShortestPath;
+        nextHops[currentRouter * size + associateRouter] = neighbour;
+
+        final int mirrored = associateRouter * size + currentRouter;
+        if (distances[mirrored] != NO_CONNECTION && distances[mirrored] <= newShortestPath)
+            return;
+        final int backHop;
+        if (associateRouter == neighbour)
+            backHop = currentRouter;
+        else if (distances[associateRouter * size + neighbour] != NO_CONNECTION
+                && distances[associateRouter * size + neighbour] == distances[neighbour * size + associateRouter])
+            backHop = nextHops[associateRouter * size + neighbour];
+        else
+            return;
+        invalidateDestination(currentRouter);
+        changedRows[associateRouter] = true;
+        distances[mirrored] = newShortestPath;
+        nextHops[mirrored] = backHop;
+    }
+
+    /**
+     * Removes the router, a converged table reroutes what went through it and stays converged.
+     */
+    public void removeRouter(final long routerToRemove) {
+        final int removedRouter = index.indexOf(routerToRemove);
+        if (removedRouter == RouterIndex.NO_INDEX || removed[removedRouter])
+            return;
+
+        if (converged) {
+            repair().removeRouter(removedRouter);
+            markConverged();
+            return;
+        }
+        markRemoved(removedRouter);
+    }
+
+    /**
+     * Marks the router removed and clears its routes, without touching the routes that went through it.
+     * Only the removed router's row counts as changed, the routes to it are cleared in place and readers of changed
+     * rows learn about them from {@link #copyRemoved()}. Forwarding recompiles the routers next to it and the routes
+     * to it, whatever went through it is invalidated as it gets rerouted.
+     */
+    public void markRemoved(final int removedRouter) {
+        removed[removedRouter] = true;
+        converged = false;
+        changedRows[removedRouter] = true;
+        if (forwarding != null) {
+            forwarding.invalidateRouter(removedRouter);
+            forwarding.invalidateDestination(removedRouter);
+            for (int arc = graph.start(removedRouter); arc < graph.end(removedRouter); arc++)
+                forwarding.invalidateRouter(graph.target(arc));
+        }
+        Arrays.fill(distances, removedRouter * size, (removedRouter + 1) * size, NO_CONNECTION);
+        Arrays.fill(nextHops, removedRouter * size, (removedRouter + 1) * size, NO_HOP);
+        for (int from = 0; from < size; from++) {
+            distances[from * size + removedRouter] = NO_CONNECTION;
+            nextHops[from * size + removedRouter] = NO_HOP;
+        }
+    }
+
+    /**
+     * Changes the weight of the link between both routers, brings a failed link back up. A converged table repairs
+     * the routes that change and stays converged, otherwise only the direct route is overwritten and convergence has
+     * to run again.
+     */
+    public void updateRouterBond(final long router, final long neighbour, final int newDistance) {
+        if (newDistance < 1)
+            throw new IllegalArgumentException("routing table: link weight has to be positive, was " + newDistance);
+        final int from = row(router);
+        final int to = row(neighbour);
+        if (converged && isLinked(from, to)) {
+            repair().updateLinkWeight(from, to, newDistance);
+            markConverged();
+            return;
+        }
+
+        converged = false;
+        invalidateDestination(from);
+        invalidateDestination(to);
+
+        changedRows[from] = true;
+        changedRows[to] = true;
+        distances[from * size + to] = newDistance;
+        nextHops[from * size + to] = to;
+        distances[to * size + from] = newDistance;
+        nextHops[to * size + from] = from;
+
+        setLinkWeight(from, to, newDistance);
+    }
+
+    /**
+     * Takes the link between both routers down, routes never cross it until {@link #updateRouterBond} gives it a
+     * weight again. A converged table reroutes what used the link and stays converged, otherwise the routes start over
+     * from the direct links and convergence has to run again.
+     */
+    public void failLink(final long router, final long neighbour) {
+        final int from = row(router);
+        final int to = row(neighbour);
+        if (!isLinked(from, to))
+            throw new IllegalArgumentException("routing table: routers " + router + " and " + neighbour + " are not linked");
+        if (converged) {
+            repair().failLink(from, to);
+            markConverged();
+            return;
+        }
+
+        setLinkWeight(from, to, NO_CONNECTION);
+        seedNeighbourDistances();
+        if (forwarding != null)
+            forwarding.invalidateAll();
+    }
+
+    private ShortestPathRepair repair() {
+        if (repair == null)
+            repair = new ShortestPathRepair(this);
+        return repair;
+    }
+
+    /**
+     * Sets the weight of the link in both directions, routes are left as they are.
+     */
+    public void setLinkWeight(final int from, final int to, final int weight) {
+        updateLinkWeight(from, to, weight);
+        updateLinkWeight(to, from, weight);
+        if (forwarding != null) {
+            forwarding.invalidateRouter(from);
+            forwarding.invalidateRouter(to);
+        }
+    }
+
+    /**
+     * @return weight of the link between both routers, NO_CONNECTION when they are not linked or the link is down
+     */
+    public int linkWeightBetween(final int from, final int to) {
+        for (int arc = graph.start(from); arc < graph.end(from); arc++)
+            if (graph.target(arc) == to)
+                return linkWeights[arc];
+        return NO_CONNECTION;
+    }
+
+    public boolean isLinked(final int from, final int to) {
+        for (int arc = graph.start(from); arc < graph.end(from); arc++)
+            if (graph.target(arc) == to)
+                return true;
+        return false;
+    }
+
+    private void updateLinkWeight(final int from, final int to, final int weight) {
+        for (int arc = graph.start(from); arc < graph.end(from); arc++)
+            if (graph.target(arc) == to)
+                linkWeights[arc] = weight;
+    }
+
+    public Set<Long> getRouterIds() {
+        final Set<Long> routerIds = new LinkedHashSet<>();
+        for (int i = 0; i < size; i++)
+            if (!removed[i])
+                routerIds.add(index.idOf(i));
+        return routerIds;
+    }
+    public Set<Long> getAssociateRouterMap(long routerId) {
+        if (!hasRouter(routerId))
+            return new HashSet<>();
+        final Set<Long> associateRouterIds = getRouterIds();
+        associateRouterIds.remove(routerId);
+        return associateRouterIds;
+    }
+
+    public boolean hasRouter(final long router) {
+        final int i = index.indexOf(router);
+        return i != RouterIndex.NO_INDEX && !removed[i];
+    }
+
+    private int row(final long routerId) {
+        final int i = index.indexOf(routerId);
+        if (i == RouterIndex.NO_INDEX || removed[i])
+            throw new IllegalArgumentException("routing table: unknown router " + routerId);
+        return i;
+    }
+
+    private int column(final long routerId) {
+        final int i = index.indexOf(routerId);
+        if (i == RouterIndex.NO_INDEX)
+            throw new IllegalArgumentException("routing table: unknown router " + routerId);
+        return i;
+    }
+
+    public void setRoute(final int from, final int to, final int distance, final int nextHop) {
+        invalidateDestination(to);
+        changedRows[from] = true;
+        distances[from * size + to] = distance;
+        nextHops[from * size + to] = nextHop;
+    }
+
+    /**
+     * Puts the distances followed by the next hops of a router's row into the target.
+     */
+    public void writeRow(final int router, final IntBuffer target) {
+        target.put(distances, router * size, size).put(nextHops, router * size, size);
+    }
+
+    /**
+     * Reads a row written by {@link #writeRow(int, IntBuffer)} back into the table.
+     */
+    public void readRow(final int router, final IntBuffer source) {
+        converged = false;
+        changedRows[router] = true;
+        if (forwarding != null)
+            forwarding.invalidateAll();
+        source.get(distances, router * size, size).get(nextHops, router * size, size);
+    }
+
+    /**
+     * Copies a router's distances and next hops into the targets, starting at offset.
+     */
+    public void copyRow(final int router, final int[] distanceTarget, final int[] nextHopTarget, final int offset) {
+        System.arraycopy(distances, router * size, distanceTarget, offset, size);
+        System.arraycopy(nextHops, router * size, nextHopTarget, offset, size);
+    }
+
+    /**
+     * Replaces a router's distances and next hops with those in the sources, starting at offset.
+     */
+    public void setRow(final int router, final int[] distanceSource, final int[] nextHopSource, final int offset) {
+        if (forwarding != null)
+            forwarding.invalidateAll();
+        changedRows[router] = true;
+        System.arraycopy(distanceSource, offset, distances, router * size, size);
+        System.arraycopy(nextHopSource, offset, nextHops, router * size, size);
+    }
+
+    /**
+     * @return whether the router's row was written since the last call for it
+     */
+    public boolean takeRowChange(final int router) {
+        final boolean changed = changedRows[router];
+        changedRows[router] = false;
+        return changed;
+    }
+
+    public boolean[] copyRemoved() {
+        return removed.clone();
+    }
+    public int[] copyLinkWeights() {
+        return linkWeights.clone();
+    }
+
+    private void invalidateDestination(final int destination) {
+        if (forwarding != null)
+            forwarding.invalidateDestination(destination);
+    }
+
+    /**
+     * Marks routes final and compiles the forwarding table, only entries invalidated since the last time are recompiled.
+     */
+    public void markConverged() {
+        if (forwarding == null)
+            forwarding = new ForwardingTable(this);
+        forwarding.refresh();
+        converged = true;
+    }
+    public boolean isConverged() {
+        return converged;
+    }
+    /**
+     * Spreads flows over every equal-cost next hop instead of always taking the first.
+     */
+    public void setMultipath(final boolean multipath) {
+        this.multipath = multipath;
+    }
+    public boolean isMultipath() {
+        return multipath;
+    }
+    public int distance(final int from, final int to) {
+        return distances[from * size + to];
+    }
+    public int nextHop(final int from, final int to) {
+        return nextHops[from * size + to];
+    }
+    public int linkWeight(final int arc) {
+        return linkWeights[arc];
+    }
+    /**
+     * Whether the link was taken down by {@link #failLink(long, long)}, its weight then reads NO_CONNECTION.
+     */
+    public boolean isLinkDown(final int arc) {
+        return linkWeights[arc] == NO_CONNECTION;
+    }
+    public CsrGraph getGraph() {
+        return graph;
+    }
+    public boolean isRemoved(final int router) {
+        return removed[router];
+    }
+    public RouterIndex getRouterIndex() {
+        return index;
+    }
+    public int size() {
+        return size;
+    }
+
+
+    @Override
+    public String toString() {
+        return "DenseRoutingTable{" +
+                "routers=" + getRouterIds() +
+                '}';
+    }
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DenseRoutingTable that = (DenseRoutingTable) o;
+        return Arrays.equals(distances, that.distances) &&
+                Arrays.equals(nextHops, that.nextHops) &&
+                Arrays.equals(removed, that.removed) &&
+                getRouterIds().equals(that.getRouterIds());
+    }
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(distances);
+    }
+}
@@ -0,0 +1,89 @@
+package ups.papersoda.netter.domain;
+
+import java.util.Arrays;
+
+/**
+ * Next hops of a {@link DenseRoutingTable} compiled into one flat array, so forwarding is a single read.
+ * Entries are arcs of the {@link CsrGraph} rather than router ids. Route changes only mark the destinations
+ * or routers they touch, {@link #refresh()} recompiles just those.
+ */
+public class ForwardingTable {
+    private final DenseRoutingTable routingTable;
+    private final int size;
+    /**
+     * links[fromIndex * size + toIndex] as arc of the from router to forward on, NO_LINK without a route
+     */
+    private final int[] links;
+    private final boolean[] dirtyDestinations;
+    private final boolean[] dirtyRouters;
+    private boolean dirty;
+
+
+    public ForwardingTable(final DenseRoutingTable routingTable) {
+        this.routingTable = routingTable;
+        this.size = routingTable.size();
+        this.links = new int[size * size];
+        this.dirtyDestinations = new boolean[size];
+        this.dirtyRouters = new boolean[size];
+        invalidateAll();
+    }
+
+
+    public void invalidateDestination(final int destination) {
+        dirtyDestinations[destination] = true;
+        dirty = true;
+    }
+
+    public void invalidateRouter(final int router) {
+        dirtyRouters[router] = true;
+        dirty = true;
+    }
+
+    public void invalidateAll() {
+        Arrays.fill(dirtyDestinations, true);
+        dirty = true;
+    }
+
+    /**
+     * Recompiles the entries of dirty destinations and routers.
+     * @return number of recompiled entries
+     */
+    public int refresh() {
+        if (!dirty)
+            return 0;
+
+        int compiled = 0;
+        for (int destination = 0; destination < size; destination++) {
+            if (!dirtyDestinations[destination])
+                continue;
+            for (int router = 0; router < size; router++)
+                compile(router, destination);
+            dirtyDestinations[destination] = false;
+            compiled += size;
+        }
+        for (int router = 0; router < size; router++) {
+            if (!dirtyRouters[router])
+                continue;
+            for (int destination = 0; destination < size; destination++)
+                compile(router, destination);
+            dirtyRouters[router] = false;
+            compiled += size;
+        }
+
+        dirty = false;
+        return compiled;
+    }
+
+    private void compile(final int router, final int destination) {
+        links[router * size + destination] = routingTable.isRemoved(router)
+                ? DenseRoutingTable.NO_LINK
+                : routingTable.nextHopLink(router, destination);
+    }
+
+    public int link(final int from, final int to) {
+        return links[from * size + to];
+    }
+    public boolean isDirty() {
+        return dirty;
+    }
+}
@@ -0,0 +1,41 @@
+package ups.papersoda.netter.domain;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.Set;
+
+public interface IRoutingTable {
+    int NO_CONNECTION = -1;
+
+    boolean tryUpdateTable(final Router currentRouter);
+    Long getNextHop(final Router currentRouter, final Packet packet);
+    Long getNextShortestPathRouter(final long from, final long to);
+    Number getCurrentShortestPathDistance(final long from, final long to);
+    Number getRouterDistance(final long fromRouter, final long toRouter);
+    Number getDistanceFromRouterToNeighbour(final long routerId, final long neighbourId);
+    void removeRouter(final long routerToRemove);
+    void updateRouterBond(final long router, final long neighbour, final int newDistance);
+    Set<Long> getRouterIds();
+    Set<Long> getAssociateRouterMap(long routerId);
+    boolean hasRouter(final long router);
+
+    /**
+     * Neighbour entry of the current router the packet has to be sent to, null without a route.
+     */
+    default Pair<Router, Connection> getNextNeighbour(final Router currentRouter, final Packet packet) {
+        final Long nextHop = getNextHop(currentRouter, packet);
+        return nextHop == null ? null : currentRouter.getNeighbour(nextHop);
+    }
+
+    /**
+     * Weight the table gives the link from the router to its neighbour, the one its distances are made of.
+     * Defaults to the distance between both, which is the link weight whenever the link is their shortest path.
+     */
+    default Number getLinkWeight(final long router, final long neighbour) {
+        return getDistanceFromRouterToNeighbour(router, neighbour);
+    }
+
+    default boolean isConverged() {
+        return false;
+    }
+}
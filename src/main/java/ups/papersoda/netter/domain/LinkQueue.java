@@ -0,0 +1,250 @@
+package ups.papersoda.netter.domain;
+
+/**
+ * Output queue of a {@link Connection} in the packet simulation: packets are sent one after another at the link's
+ * bandwidth and at most capacity of them wait or are on the wire at once. What happens to a packet arriving at a
+ * full queue depends on the {@link Policy}.
+ * The queue only keeps the times its packets finish sending, in a ring sized to the capacity, so a deep queue costs
+ * no allocation. Changed by the simulation thread only, readers elsewhere may see slightly stale numbers.
+ */
+public class LinkQueue {
+    public static final long UNLIMITED_BANDWIDTH = 0;
+    /**
+     * Returned by {@link #offer(long, int)} when the packet was dropped.
+     */
+    public static final long DROPPED = -1;
+    /**
+     * Returned by {@link #offer(long, int)} when the packet has to wait at the sender until {@link #nextDeparture()}.
+     */
+    public static final long BLOCKED = -2;
+
+    public enum Policy {
+        /**
+         * Drops packets arriving at a full queue.
+         */
+        TAIL_DROP,
+        /**
+         * Random early detection, drops packets with a probability growing with the average queue depth, and
+         * every packet arriving at a full queue.
+         */
+        RED,
+        /**
+         * Never drops, a packet arriving at a full queue is held back by the sender until a place frees up.
+         */
+        BACKPRESSURE
+    }
+
+    private final Policy policy;
+    private final long bandwidth;
+    private final long[] departures;
+    private final double minThreshold;
+    private final double maxThreshold;
+    private final double maxProbability;
+    private final double averageWeight;
+    private long randomState;
+
+    private int head;
+    private int depth;
+    private int maxDepth;
+    private double averageDepth;
+    private long busyUntil;
+    private long busyTime;
+    private long lastTime;
+    private long sentPackets;
+    private long droppedPackets;
+    private long blockedPackets;
+
+
+    private LinkQueue(
+            Policy policy, long bandwidth, int capacity,
+            double minThreshold, double maxThreshold, double maxProbability, double averageWeight, long seed
+    ) {
+        if (bandwidth < 0)
+            throw new IllegalArgumentException("link queue: bandwidth can't be negative");
+        if (capacity < 1)
+            throw new IllegalArgumentException("link queue: capacity has to be positive");
+        this.policy = policy;
+        this.bandwidth = bandwidth;
+        this.departures = new long[capacity];
+        this.minThreshold = minThreshold;
+        this.maxThreshold = maxThreshold;
+        this.maxProbability = maxProbability;
+        this.averageWeight = averageWeight;
+        this.randomState = seed;
+    }
+
+    /**
+     * @param bandwidth payload bytes sent per simulated time unit, {@link #UNLIMITED_BANDWIDTH} to send instantly
+     */
+    public static LinkQueue tailDrop(final long bandwidth, final int capacity) {
+        return new LinkQueue(Policy.TAIL_DROP, bandwidth, capacity, 0, 0, 0, 0, 0);
+    }
+
+    public static LinkQueue backpressure(final long bandwidth, final int capacity) {
+        return new LinkQueue(Policy.BACKPRESSURE, bandwidth, capacity, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * @param minThreshold average depth from which packets are dropped early
+     * @param maxThreshold average depth from which every packet is dropped
+     * @param maxProbability drop probability just below the max threshold
+     * @param averageWeight weight of the current depth in the moving average, 0.002 in the original RED paper
+     */
+    public static LinkQueue red(
+            final long bandwidth, final int capacity,
+            final double minThreshold, final double maxThreshold, final double maxProbability,
+            final double averageWeight, final long seed
+    ) {
+        if (minThreshold < 0 || minThreshold >= maxThreshold || maxThreshold > capacity)
+            throw new IllegalArgumentException("link queue: RED thresholds have to satisfy 0 <= min < max <= capacity");
+        if (maxProbability <= 0 || maxProbability > 1)
+            throw new IllegalArgumentException("link queue: RED max probability has to be in (0, 1]");
+        if (averageWeight <= 0 || averageWeight > 1)
+            throw new IllegalArgumentException("link queue: RED average weight has to be in (0, 1]");
+        return new LinkQueue(Policy.RED, bandwidth, capacity, minThreshold, maxThreshold, maxProbability, averageWeight, seed);
+    }
+
+
+    /**
+     * Queues a packet of the given size at the given time, times have to be offered in order.
+     * @return time the packet is fully sent, {@link #DROPPED} or {@link #BLOCKED}; only a backpressure queue blocks
+     * and it never drops
+     */
+    public long offer(final long now, final int payloadSize) {
+        lastTime = Math.max(lastTime, now);
+        drain(now);
+
+        if (policy == Policy.RED) {
+            averageDepth += averageWeight * (depth - averageDepth);
+            if (depth < departures.length && !dropsEarly())
+                return send(now, payloadSize);
+            droppedPackets++;
+            return DROPPED;
+        }
+
+        if (depth < departures.length)
+            return send(now, payloadSize);
+        if (policy == Policy.BACKPRESSURE) {
+            blockedPackets++;
+            return BLOCKED;
+        }
+        droppedPackets++;
+        return DROPPED;
+    }
+
+    /**
+     * Time the packet at the head of the queue is fully sent and frees its place.
+     */
+    public long nextDeparture() {
+        return depth == 0 ? lastTime : departures[head];
+    }
+
+    private void drain(final long now) {
+        while (depth > 0 && departures[head] <= now) {
+            head = head + 1 == departures.length ? 0 : head + 1;
+            depth--;
+        }
+    }
+
+    private long send(final long now, final int payloadSize) {
+        final long transmissionTime = transmissionTime(payloadSize);
+        final long departure = Math.max(now, busyUntil) + transmissionTime;
+        busyUntil = departure;
+        busyTime += transmissionTime;
+
+        final int tail = head + depth;
+        departures[tail < departures.length ? tail : tail - departures.length] = departure;
+        depth++;
+        maxDepth = Math.max(maxDepth, depth);
+        sentPackets++;
+        return departure;
+    }
+
+    /**
+     * Time the payload holds the link, at least one time unit on a link of limited bandwidth.
+     */
+    public long transmissionTime(final int payloadSize) {
+        if (bandwidth == UNLIMITED_BANDWIDTH)
+            return 0;
+        return Math.max(1, (payloadSize + bandwidth - 1) / bandwidth);
+    }
+
+    private boolean dropsEarly() {
+        if (averageDepth < minThreshold)
+            return false;
+        if (averageDepth >= maxThreshold)
+            return true;
+        final double probability = maxProbability * (averageDepth - minThreshold) / (maxThreshold - minThreshold);
+        return nextRandom() < probability;
+    }
+
+    private double nextRandom() {
+        long z = (randomState += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Share of the time up to now the link spent sending.
+     */
+    public double getUtilisation(final long now) {
+        if (now <= 0)
+            return 0;
+        final long busyBeforeNow = busyTime - Math.max(0, busyUntil - now);
+        return (double)busyBeforeNow / now;
+    }
+    /**
+     * Utilisation up to the last time a packet was offered.
+     */
+    public double getUtilisation() {
+        return getUtilisation(lastTime);
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+    public long getBandwidth() {
+        return bandwidth;
+    }
+    public int getCapacity() {
+        return departures.length;
+    }
+    /**
+     * Packets waiting or being sent as of the last offer.
+     */
+    public int getDepth() {
+        return depth;
+    }
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+    public double getAverageDepth() {
+        return averageDepth;
+    }
+    public long getBusyTime() {
+        return busyTime;
+    }
+    public long getSentPackets() {
+        return sentPackets;
+    }
+    public long getDroppedPackets() {
+        return droppedPackets;
+    }
+    public long getBlockedPackets() {
+        return blockedPackets;
+    }
+
+
+    @Override
+    public String toString() {
+        return "LinkQueue{" +
+                "policy=" + policy +
+                ", bandwidth=" + bandwidth +
+                ", capacity=" + departures.length +
+                ", depth=" + depth +
+                ", dropped=" + droppedPackets +
+                '}';
+    }
+}
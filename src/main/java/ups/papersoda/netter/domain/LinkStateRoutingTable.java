@@ -0,0 +1,323 @@
+package ups.papersoda.netter.domain;
+
+import org.apache.commons.lang3.tuple.Pair;
+import ups.papersoda.netter.domain.routing.IntMinHeap;
+
+import java.util.*;
+
+/**
+ * Link-state routing: every router knows the whole topology, a link state database of links, weights and failed
+ * routers, and computes its own shortest path tree with Dijkstra. A topology change starts a new database version,
+ * each router runs Dijkstra again the next time it routes or through {@link #converge()}.
+ * <p>
+ * Distances are those of the undirected links, like the other tables. The route a router forwards on starts with
+ * one of its outgoing links, so a router with links it can't send over runs Dijkstra a second time for its routes.
+ * <p>
+ * Dijkstra runs hold the table's lock and share one heap, so routers whose trees went stale are recomputed one at a
+ * time, however many threads forward; lookups on up to date trees take no lock. Running {@link #converge()} after a
+ * topology change keeps the recomputation off the forwarding threads.
+ */
+public class LinkStateRoutingTable implements IRoutingTable {
+    private final CsrGraph graph;
+    private final RouterIndex index;
+    private final int size;
+    /**
+     * Current weight per arc of the graph, starts as built and follows bond updates
+     */
+    private final int[] linkWeights;
+    private final boolean[] removed;
+    private final ShortestPathTree[] trees;
+    private final IntMinHeap heap;
+    private volatile long version;
+    private long shortestPathRuns;
+
+
+    private LinkStateRoutingTable(final CsrGraph graph) {
+        this.graph = graph;
+        this.index = graph.getRouterIndex();
+        this.size = index.size();
+        this.linkWeights = graph.copyWeights();
+        this.removed = new boolean[size];
+        this.trees = new ShortestPathTree[size];
+        this.heap = new IntMinHeap(size);
+    }
+
+
+    public static LinkStateRoutingTable createRoutingTable(final Collection<? extends Router> routers) {
+        if (routers.isEmpty())
+            throw new IllegalArgumentException("routing table: no routers provided");
+        return new LinkStateRoutingTable(CsrGraph.of(routers));
+    }
+
+
+    /**
+     * Brings every router's shortest path tree up to the current topology.
+     * @return number of routers that ran Dijkstra
+     */
+    public synchronized int converge() {
+        int recomputed = 0;
+        for (int router = 0; router < size; router++)
+            if (!removed[router] && isStale(router)) {
+                compute(router);
+                recomputed++;
+            }
+        return recomputed;
+    }
+
+    /**
+     * Runs Dijkstra for the router if its tree is older than the topology.
+     * @return whether it did
+     */
+    public boolean tryUpdateTable(final Router currentRouter) {
+        final int router = row(currentRouter.id());
+        if (!isStale(router))
+            return false;
+        tree(router);
+        return true;
+    }
+
+    private boolean isStale(final int router) {
+        final ShortestPathTree tree = trees[router];
+        return tree == null || tree.version != version;
+    }
+
+    private ShortestPathTree tree(final int router) {
+        final ShortestPathTree tree = trees[router];
+        if (tree != null && tree.version == version)
+            return tree;
+        return compute(router);
+    }
+
+    private synchronized ShortestPathTree compute(final int router) {
+        final ShortestPathTree current = trees[router];
+        if (current != null && current.version == version)
+            return current;
+
+        final int[] distances = new int[size];
+        final int[] links = new int[size];
+        final boolean forwardsOnEveryLink = forwardsOnEveryLink(router);
+        shortestPaths(router, false, distances, links);
+        if (!forwardsOnEveryLink)
+            shortestPaths(router, true, new int[size], links);
+
+        final ShortestPathTree tree = new ShortestPathTree(version, distances, links);
+        trees[router] = tree;
+        return tree;
+    }
+
+    private boolean forwardsOnEveryLink(final int router) {
+        for (int arc = graph.start(router); arc < graph.end(router); arc++)
+            if (!graph.isOutgoing(arc))
+                return false;
+        return true;
+    }
+
+    /**
+     * Dijkstra from the router, recording per destination the router's arc its shortest path starts with.
+     * @param outgoingFirst whether paths have to start with an outgoing link
+     */
+    private void shortestPaths(final int source, final boolean outgoingFirst, final int[] distances, final int[] links) {
+        shortestPathRuns++;
+        Arrays.fill(distances, NO_CONNECTION);
+        Arrays.fill(links, DenseRoutingTable.NO_LINK);
+        distances[source] = 0;
+
+        heap.clear();
+        for (int arc = graph.start(source); arc < graph.end(source); arc++) {
+            final int neighbour = graph.target(arc);
+            if (removed[neighbour] || (outgoingFirst && !graph.isOutgoing(arc)))
+                continue;
+            if (distances[neighbour] != NO_CONNECTION && distances[neighbour] <= linkWeights[arc])
+                continue;
+            distances[neighbour] = linkWeights[arc];
+            links[neighbour] = graph.isOutgoing(arc) ? arc : DenseRoutingTable.NO_LINK;
+            heap.offer(neighbour, linkWeights[arc]);
+        }
+
+        while (!heap.isEmpty()) {
+            final int router = heap.poll();
+            final int distance = distances[router];
+            for (int arc = graph.start(router); arc < graph.end(router); arc++) {
+                final int next = graph.target(arc);
+                if (next == source || removed[next])
+                    continue;
+                final int possibleShortestPath = distance + linkWeights[arc];
+                if (distances[next] != NO_CONNECTION && distances[next] <= possibleShortestPath)
+                    continue;
+                distances[next] = possibleShortestPath;
+                links[next] = links[router];
+                heap.offer(next, possibleShortestPath);
+            }
+        }
+    }
+
+    public Long getNextHop(final Router currentRouter, final Packet packet) {
+        final int link = link(row(currentRouter.id()), column(packet.getDestId()));
+        return link == DenseRoutingTable.NO_LINK ? null : index.idOf(graph.target(link));
+    }
+
+    @Override
+    public Pair<Router, Connection> getNextNeighbour(final Router currentRouter, final Packet packet) {
+        final int link = link(row(currentRouter.id()), column(packet.getDestId()));
+        return link == DenseRoutingTable.NO_LINK ? null : graph.neighbourLink(link);
+    }
+
+    /**
+     * @return arc of the from router its route to the destination starts with, NO_LINK without one
+     */
+    public int link(final int from, final int to) {
+        if (from == to)
+            return DenseRoutingTable.NO_LINK;
+        return tree(from).links[to];
+    }
+
+    public Long getNextShortestPathRouter(final long from, final long to) {
+        final int source = row(from);
+        final int destination = column(to);
+        if (source == destination)
+            return from;
+        final int link = link(source, destination);
+        return link == DenseRoutingTable.NO_LINK ? null : index.idOf(graph.target(link));
+    }
+
+    public Number getCurrentShortestPathDistance(final long from, final long to) {
+        return distance(row(from), column(to));
+    }
+
+    public Number getRouterDistance(final long fromRouter, final long toRouter) {
+        return distance(row(fromRouter), column(toRouter));
+    }
+
+    public Number getDistanceFromRouterToNeighbour(final long routerId, final long neighbourId) {
+        return distance(row(routerId), column(neighbourId));
+    }
+
+    @Override
+    public synchronized Number getLinkWeight(final long router, final long neighbour) {
+        final int from = row(router);
+        final int to = row(neighbour);
+        for (int arc = graph.start(from); arc < graph.end(from); arc++)
+            if (graph.target(arc) == to)
+                return linkWeights[arc];
+        return NO_CONNECTION;
+    }
+
+    public int distance(final int from, final int to) {
+        return tree(from).distances[to];
+    }
+
+    public synchronized void removeRouter(final long routerToRemove) {
+        final int removedRouter = index.indexOf(routerToRemove);
+        if (removedRouter == RouterIndex.NO_INDEX || removed[removedRouter])
+            return;
+        removed[removedRouter] = true;
+        trees[removedRouter] = null;
+        version++;
+    }
+
+    public synchronized void updateRouterBond(final long router, final long neighbour, final int newDistance) {
+        if (newDistance < 1)
+            throw new IllegalArgumentException("link state: link weight has to be positive, was " + newDistance);
+        final int from = row(router);
+        final int to = row(neighbour);
+        final boolean linked = updateLinkWeight(from, to, newDistance) | updateLinkWeight(to, from, newDistance);
+        if (!linked)
+            throw new IllegalArgumentException("link state: routers " + router + " and " + neighbour + " are not linked");
+        version++;
+    }
+
+    private boolean updateLinkWeight(final int from, final int to, final int weight) {
+        boolean linked = false;
+        for (int arc = graph.start(from); arc < graph.end(from); arc++)
+            if (graph.target(arc) == to) {
+                linkWeights[arc] = weight;
+                linked = true;
+            }
+        return linked;
+    }
+
+    public Set<Long> getRouterIds() {
+        final Set<Long> routerIds = new LinkedHashSet<>();
+        for (int i = 0; i < size; i++)
+            if (!removed[i])
+                routerIds.add(index.idOf(i));
+        return routerIds;
+    }
+    public Set<Long> getAssociateRouterMap(long routerId) {
+        if (!hasRouter(routerId))
+            return new HashSet<>();
+        final Set<Long> associateRouterIds = getRouterIds();
+        associateRouterIds.remove(routerId);
+        return associateRouterIds;
+    }
+
+    public boolean hasRouter(final long router) {
+        final int i = index.indexOf(router);
+        return i != RouterIndex.NO_INDEX && !removed[i];
+    }
+
+    private int row(final long routerId) {
+        final int i = index.indexOf(routerId);
+        if (i == RouterIndex.NO_INDEX || removed[i])
+            throw new IllegalArgumentException("routing table: unknown router " + routerId);
+        return i;
+    }
+
+    private int column(final long routerId) {
+        final int i = index.indexOf(routerId);
+        if (i == RouterIndex.NO_INDEX)
+            throw new IllegalArgumentException("routing table: unknown router " + routerId);
+        return i;
+    }
+
+    /**
+     * Routes are computed on demand, routers never need to exchange them.
+     */
+    @Override
+    public boolean isConverged() {
+        return true;
+    }
+    public long getVersion() {
+        return version;
+    }
+    /**
+     * Dijkstra runs so far, the cost of converging.
+     */
+    public synchronized long getShortestPathRuns() {
+        return shortestPathRuns;
+    }
+    public CsrGraph getGraph() {
+        return graph;
+    }
+    public int size() {
+        return size;
+    }
+
+
+    @Override
+    public String toString() {
+        return "LinkStateRoutingTable{" +
+                "version=" + version +
+                ", routers=" + getRouterIds() +
+                '}';
+    }
+
+    /**
+     * One router's view of the topology version it was computed for.
+     */
+    private static final class ShortestPathTree {
+        private final long version;
+        private final int[] distances;
+        /**
+         * links[destination] as arc of the router its route starts with, NO_LINK without one
+         */
+        private final int[] links;
+
+
+        ShortestPathTree(long version, int[] distances, int[] links) {
+            this.version = version;
+            this.distances = distances;
+            this.links = links;
+        }
+    }
+}
@@ -1,29 +1,222 @@
 package ups.papersoda.netter.domain;
 
+import ups.papersoda.netter.domain.listener.PacketListener;
+import ups.papersoda.netter.domain.mapper.ConnectionSource;
 import ups.papersoda.netter.domain.mapper.RouterMapperInt;
+import ups.papersoda.netter.domain.routing.WorklistConvergence;
+import ups.papersoda.netter.domain.transmission.MailboxTransmission;
+import ups.papersoda.netter.domain.transmission.PacketSimulation;
+import ups.papersoda.netter.domain.transmission.PacketSubscriber;
 import ups.papersoda.netter.dto.RouterDTO;
+import ups.papersoda.netter.metrics.NetworkMetrics;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 public class Network {
+    private static final int SHARDS_PER_WORKER = 4;
+
     private final Map<Long, Router> routers;
-    private final RoutingTable routingTable;
+    private final CsrGraph graph;
+    private final IRoutingTable routingTable;
+    private final NetworkMetrics metrics = new NetworkMetrics();
+    private PacketListener packetListener = PacketListener.NONE;
+    private int hopLimit;
 
 
     public Network(RouterMapperInt routerMapper, List<? extends RouterDTO> routerDTOS) {
-        routers = routerMapper.transformToRouters(routerDTOS);
-        routingTable = RoutingTable.createRoutingTable(routers.values());
-        routers.forEach((routerId, router) -> router.setRoutingTable(routingTable));
+        this(routerMapper, routerDTOS, RoutingTable::createRoutingTable);
+    }
+
+    public Network(
+            RouterMapperInt routerMapper,
+            List<? extends RouterDTO> routerDTOS,
+            Function<Collection<? extends Router>, ? extends IRoutingTable> routingTableFactory
+    ) {
+        this(routerMapper.transformToRouters(routerDTOS), routingTableFactory);
     }
 
+    public Network(
+            RouterMapperInt routerMapper,
+            ConnectionSource connections,
+            Function<Collection<? extends Router>, ? extends IRoutingTable> routingTableFactory
+    ) {
+        this(routerMapper.transformToRouters(connections), routingTableFactory);
+    }
+
+    private Network(
+            Map<Long, Router> routers,
+            Function<Collection<? extends Router>, ? extends IRoutingTable> routingTableFactory
+    ) {
+        this.routers = routers;
+        graph = CsrGraph.of(routers.values());
+        routingTable = routingTableFactory.apply(routers.values());
+        routers.forEach((routerId, router) -> {
+            router.setRoutingTable(routingTable);
+            router.setConvergesOnReceive(!routingTable.isConverged());
+            router.setMetrics(metrics);
+        });
+        hopLimit = routers.size();
+    }
 
+
+    /**
+     * Converges the routing table up front so that forwarding only reads it.
+     * @return number of routes that were improved, for a link-state table the number of routers that ran Dijkstra
+     */
+    public int convergeRoutingTable() {
+        final long start = System.nanoTime();
+        final int improvedRoutes;
+        if (routingTable instanceof DenseRoutingTable)
+            improvedRoutes = new WorklistConvergence((DenseRoutingTable)routingTable).converge();
+        else if (routingTable instanceof VersionedRoutingTable)
+            improvedRoutes = ((VersionedRoutingTable)routingTable).update(table -> new WorklistConvergence(table).converge());
+        else if (routingTable instanceof LinkStateRoutingTable)
+            improvedRoutes = ((LinkStateRoutingTable)routingTable).converge();
+        else
+            throw new IllegalStateException("network: only a dense or link-state routing table can be converged ahead of transmission");
+
+        metrics.recordConvergence(System.nanoTime() - start);
+        routers.values().forEach(router -> router.setConvergesOnReceive(false));
+        return improvedRoutes;
+    }
+
+    /**
+     * Forwards packets one at a time in a loop, one hop per step, instead of recursing router to router.
+     * Packets are handled in order and take the same paths as with {@link Router#receivePacket(Packet)}.
+     */
     public void beingPacketTransmission(final List<? extends Packet> packets) {
-        packets.forEach(this::transmitPacket);
+        beingPacketTransmission(packets.iterator());
+    }
+
+    /**
+     * Pulls the next packet only once the previous one was delivered or dropped, so memory stays flat however many
+     * packets the iterator yields.
+     */
+    public void beingPacketTransmission(final Iterator<? extends Packet> packets) {
+        while (packets.hasNext())
+            transmitPacket(packets.next());
+    }
+
+    public void beingPacketTransmission(final Stream<? extends Packet> packets) {
+        beingPacketTransmission(packets.iterator());
+    }
+
+    /**
+     * Subscribes to the publisher with a demand of at most bufferSize outstanding packets and forwards each on arrival.
+     * @return future completing once the publisher completed and every received packet was forwarded
+     */
+    public CompletableFuture<Void> beingPacketTransmission(final Flow.Publisher<? extends Packet> packets, final int bufferSize) {
+        final PacketSubscriber subscriber = new PacketSubscriber(this::transmitPacket, bufferSize);
+        packets.subscribe(subscriber);
+        return subscriber.getCompletion();
     }
 
     private void transmitPacket(final Packet packet) {
-        routers.get(packet.getSourceId()).receivePacket(packet);
+        Router router = routers.get(packet.getSourceId());
+        if (router == null) {
+            packet.setState(Packet.State.DROPPED);
+            return;
+        }
+
+        while (true) {
+            final var nextNeighbour = router.routePacket(packet);
+            if (nextNeighbour == null)
+                return;
+
+            if (packet.getPathLength() > hopLimit) {
+                router.dropPacket(packet);
+                return;
+            }
+            router = nextNeighbour.getKey();
+        }
+    }
+
+    /**
+     * Forwards packets on a pool of the given parallelism, routers drain per shard mailboxes and only read the routing table.
+     */
+    public void beingParallelPacketTransmission(final List<? extends Packet> packets, final int parallelism) {
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            beingParallelPacketTransmission(packets, pool, parallelism * SHARDS_PER_WORKER);
+        } finally {
+            pool.shutdown();
+        }
     }
-}
 
+    public void beingParallelPacketTransmission(final List<? extends Packet> packets, final Executor executor, final int shardCount) {
+        if (!routingTable.isConverged())
+            throw new IllegalStateException("network: routing table has to be converged before parallel transmission");
+
+        new MailboxTransmission(executor, shardCount, hopLimit)
+                .transmit(packets, routers::get);
+    }
+
+    /**
+     * Replays packets from their sent time with link latencies as transit times.
+     * @return simulated time the last packet arrived
+     */
+    public long beingSimulatedPacketTransmission(final List<? extends Packet> packets) {
+        final PacketSimulation simulation = createSimulation();
+        simulation.inject(packets);
+        return simulation.run();
+    }
+
+    public PacketSimulation createSimulation() {
+        return new PacketSimulation(routers::get, hopLimit);
+    }
+
+    /**
+     * Listener every router reports its deliveries and drops to, replaces the previous one.
+     */
+    public void setPacketListener(final PacketListener packetListener) {
+        this.packetListener = Objects.requireNonNull(packetListener, "network: packet listener can't be null");
+        routers.values().forEach(router -> router.setPacketListener(packetListener));
+    }
+    public PacketListener getPacketListener() {
+        return packetListener;
+    }
+
+    /**
+     * Gives every link the queue created for it, a null queue leaves the link without capacity limits.
+     */
+    public void setLinkQueues(final Function<? super Connection, LinkQueue> queues) {
+        routers.values().forEach(router ->
+                router.getNeighbourLinks().forEach(link -> link.getValue().setQueue(queues.apply(link.getValue())))
+        );
+    }
+
+    public void setHopLimit(final int hopLimit) {
+        if (hopLimit < 1)
+            throw new IllegalArgumentException("network: hop limit has to be positive");
+        this.hopLimit = hopLimit;
+    }
+    public int getHopLimit() {
+        return hopLimit;
+    }
+    public Router getRouter(final long routerId) {
+        return routers.get(routerId);
+    }
+    public CsrGraph getGraph() {
+        return graph;
+    }
+    public IRoutingTable getRoutingTable() {
+        return routingTable;
+    }
+    public Collection<Router> getRouters() {
+        return Collections.unmodifiableCollection(routers.values());
+    }
+    public NetworkMetrics getMetrics() {
+        return metrics;
+    }
+}
@@ -1,15 +1,29 @@
 package ups.papersoda.netter.domain;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 public class Packet {
+    public enum State { IN_TRANSIT, DELIVERED, DROPPED }
+    public static final long NOT_DELIVERED = -1L;
+    private static final int INITIAL_PATH_CAPACITY = 8;
+
     private long id;
     private long sourceId;
     private long destId;
-    private final List<Long> path = new ArrayList<>();
-    private byte[] data;
+    private long flowId;
+    private long[] path = new long[INITIAL_PATH_CAPACITY];
+    private int pathLength;
+    private long pathWeight;
+    private final List<Long> pathView = new PathView();
+    private ByteBuffer payload;
+    private State state = State.IN_TRANSIT;
+    private long sentTime;
+    private long deliveryTime = NOT_DELIVERED;
+    private boolean released;
 
 
     public Packet(long id, long sourceId, long destId) {
@@ -37,11 +51,112 @@ public class Packet {
     public void setDestId(long destId) {
         this.destId = destId;
     }
+    /**
+     * Tells apart flows between the same routers, packets of one flow share a flow id.
+     */
+    public long getFlowId() {
+        return flowId;
+    }
+    public void setFlowId(long flowId) {
+        this.flowId = flowId;
+    }
+    /**
+     * Stable hash of source, destination and flow id, equal for every packet of a flow.
+     */
+    public long getFlowHash() {
+        long hash = sourceId * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ destId) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ flowId) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+    /**
+     * Read-only view over the primitive path, it follows later hops.
+     */
     public List<Long> getPath() {
-        return path;
+        return pathView;
     }
     public void addToPath(long router) {
-        path.add(router);
+        if (pathLength == path.length)
+            path = Arrays.copyOf(path, pathLength * 2);
+        path[pathLength++] = router;
+    }
+    public int getPathLength() {
+        return pathLength;
+    }
+    /**
+     * Summed weight of the links the packet was forwarded over.
+     */
+    public long getPathWeight() {
+        return pathWeight;
+    }
+    public void addPathWeight(int weight) {
+        pathWeight += weight;
+    }
+    public long getPathRouter(int hop) {
+        if (hop < 0 || hop >= pathLength)
+            throw new IndexOutOfBoundsException("packet: hop " + hop + " out of path length " + pathLength);
+        return path[hop];
+    }
+
+    /**
+     * Prepares the packet for reuse, keeping the path buffer it has grown so far.
+     */
+    public void reset(long id, long sourceId, long destId) {
+        this.id = id;
+        this.sourceId = sourceId;
+        this.destId = destId;
+        this.flowId = 0L;
+        this.pathLength = 0;
+        this.pathWeight = 0L;
+        this.payload = null;
+        this.state = State.IN_TRANSIT;
+        this.sentTime = 0L;
+        this.deliveryTime = NOT_DELIVERED;
+        this.released = false;
+    }
+
+    /**
+     * Marks the packet as given back to a {@link PacketPool}, reset clears the mark.
+     * @return false when it already was
+     */
+    boolean markReleased() {
+        if (released)
+            return false;
+        released = true;
+        return true;
+    }
+    /**
+     * Read-only view of the payload between its position and limit, the bytes themselves are never copied.
+     */
+    public ByteBuffer getPayload() {
+        return payload == null ? null : payload.asReadOnlyBuffer();
+    }
+    /**
+     * Attaches the buffer as is, a pooled or memory-mapped slice keeps backing the packet until it is released.
+     */
+    public void setPayload(ByteBuffer payload) {
+        this.payload = payload;
+    }
+    public int getPayloadSize() {
+        return payload == null ? 0 : payload.remaining();
+    }
+    public State getState() {
+        return state;
+    }
+    public void setState(State state) {
+        this.state = state;
+    }
+    public long getSentTime() {
+        return sentTime;
+    }
+    public void setSentTime(long sentTime) {
+        this.sentTime = sentTime;
+    }
+    public long getDeliveryTime() {
+        return deliveryTime;
+    }
+    public void setDeliveryTime(long deliveryTime) {
+        this.deliveryTime = deliveryTime;
     }
 
 
@@ -51,8 +166,22 @@ public class Packet {
                 "id=" + id +
                 ", sourceId=" + sourceId +
                 ", destId=" + destId +
-                ", path=" + path +
-                ", data=" + Arrays.toString(data) +
+                ", flowId=" + flowId +
+                ", path=" + pathView +
+                ", state=" + state +
+                ", payloadSize=" + getPayloadSize() +
                 '}';
     }
+
+
+    private class PathView extends AbstractList<Long> implements RandomAccess {
+        @Override
+        public Long get(int hop) {
+            return getPathRouter(hop);
+        }
+        @Override
+        public int size() {
+            return pathLength;
+        }
+    }
 }
@@ -0,0 +1,50 @@
+package ups.papersoda.netter.domain;
+
+import java.util.ArrayDeque;
+
+/**
+ * Recycles packets so a steady stream of traffic reuses packet objects and their grown path buffers.
+ * Not thread safe, every producing thread keeps its own pool.
+ */
+public class PacketPool {
+    private final ArrayDeque<Packet> freePackets;
+    private final int capacity;
+    private long created;
+
+
+    public PacketPool(final int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("packet pool: capacity has to be positive");
+        this.capacity = capacity;
+        this.freePackets = new ArrayDeque<>(capacity);
+    }
+
+
+    public Packet acquire(final long id, final long sourceId, final long destId) {
+        final Packet packet = freePackets.pollLast();
+        if (packet == null) {
+            created++;
+            return new Packet(id, sourceId, destId);
+        }
+        packet.reset(id, sourceId, destId);
+        return packet;
+    }
+
+    /**
+     * Returns a packet that is no longer referenced, packets over capacity are left to the garbage collector.
+     * A packet can be released once per acquire, so it is never handed out twice.
+     */
+    public void release(final Packet packet) {
+        if (!packet.markReleased())
+            throw new IllegalStateException("packet pool: packet " + packet.getId() + " was already released");
+        if (freePackets.size() < capacity)
+            freePackets.addLast(packet);
+    }
+
+    public int available() {
+        return freePackets.size();
+    }
+    public long created() {
+        return created;
+    }
+}
@@ -0,0 +1,77 @@
+package ups.papersoda.netter.domain;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Fixed-size payload slots carved out of one direct buffer allocated up front.
+ * Slots are handed out and taken back without allocating, a payload set on a packet is never copied between routers.
+ * Only slots of this pool that are out can be released, so no slot is handed out twice.
+ */
+public class PayloadPool {
+    private final ByteBuffer memory;
+    private final int slotSize;
+    private final ArrayDeque<ByteBuffer> freeSlots;
+    /**
+     * Slot number by slot, by identity since buffers compare by content
+     */
+    private final Map<ByteBuffer, Integer> slotNumbers;
+    private final BitSet takenSlots;
+
+
+    public PayloadPool(final int slotCount, final int slotSize) {
+        if (slotCount < 1 || slotSize < 1)
+            throw new IllegalArgumentException("payload pool: slot count and slot size have to be positive");
+        if ((long)slotCount * slotSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("payload pool: " + slotCount + " slots of " + slotSize + " bytes exceed a single buffer");
+
+        this.slotSize = slotSize;
+        this.memory = ByteBuffer.allocateDirect(slotCount * slotSize);
+        this.freeSlots = new ArrayDeque<>(slotCount);
+        this.slotNumbers = new IdentityHashMap<>(slotCount);
+        this.takenSlots = new BitSet(slotCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            memory.limit((slot + 1) * slotSize).position(slot * slotSize);
+            final ByteBuffer slice = memory.slice();
+            freeSlots.addLast(slice);
+            slotNumbers.put(slice, slot);
+        }
+        memory.clear();
+    }
+
+
+    /**
+     * @return slot limited to size bytes, null when every slot is taken
+     */
+    public synchronized ByteBuffer acquire(final int size) {
+        if (size > slotSize)
+            throw new IllegalArgumentException("payload pool: " + size + " bytes exceed slot size " + slotSize);
+
+        final ByteBuffer slot = freeSlots.pollLast();
+        if (slot == null)
+            return null;
+        takenSlots.set(slotNumbers.get(slot));
+        slot.clear().limit(size);
+        return slot;
+    }
+
+    public synchronized void release(final ByteBuffer slot) {
+        final Integer slotNumber = slotNumbers.get(slot);
+        if (slotNumber == null)
+            throw new IllegalArgumentException("payload pool: buffer was not acquired from this pool");
+        if (!takenSlots.get(slotNumber))
+            throw new IllegalStateException("payload pool: slot " + slotNumber + " was already released");
+        takenSlots.clear(slotNumber);
+        freeSlots.addLast(slot);
+    }
+
+    public synchronized int available() {
+        return freeSlots.size();
+    }
+    public int getSlotSize() {
+        return slotSize;
+    }
+}
@@ -1,16 +1,29 @@
 package ups.papersoda.netter.domain;
 
 import org.apache.commons.lang3.tuple.Pair;
+import ups.papersoda.netter.domain.listener.PacketListener;
+import ups.papersoda.netter.metrics.NetworkMetrics;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class Router implements IRouter {
     private long id;
     private Map<Long, Pair<Router, Connection>> neighbours;
-    private RoutingTable routingTable;
+    private IRoutingTable routingTable;
+    private CsrGraph graph;
+    private int graphIndex = RouterIndex.NO_INDEX;
+    private boolean convergesOnReceive = true;
+    private NetworkMetrics metrics;
+    private PacketListener packetListener = PacketListener.NONE;
+    private final LongAdder forwardedPackets = new LongAdder();
+    private final LongAdder deliveredPackets = new LongAdder();
+    private final LongAdder droppedPackets = new LongAdder();
 
 
     public Router(long id, Map<Long, Pair<Router, Connection>> neighbours) {
@@ -26,6 +39,7 @@ public class Router implements IRouter {
     }
 
     public void addNeighbour(final long neighbourId, final Router router, final Connection connection) {
+        detachGraph();
         if (!isNeighbour(router)) {
             neighbours.put(neighbourId, Pair.of(router, connection));
             return;
@@ -34,12 +48,18 @@ public class Router implements IRouter {
     }
 
     public int getDistanceToPossibleNeighbour(final Router router) {
-        if (router.isNeighbour(this))
-            return router.getDistanceToPossibleNeighbour(this);
-        else if (!neighbours.containsKey(router.id()))
-            return RoutingTable.NO_CONNECTION;
-        else
-            return neighbours.get(router.id()).getValue().getWeight();
+        final int outgoing = neighbours.containsKey(router.id())
+                ? neighbours.get(router.id()).getValue().getWeight()
+                : RoutingTable.NO_CONNECTION;
+        final int incoming = router.isNeighbour(this)
+                ? router.getNeighbour(id).getValue().getWeight()
+                : RoutingTable.NO_CONNECTION;
+
+        if (outgoing == RoutingTable.NO_CONNECTION)
+            return incoming;
+        if (incoming == RoutingTable.NO_CONNECTION)
+            return outgoing;
+        return Math.min(outgoing, incoming);
     }
 
     public void sendPacket(final long neighbour, final Packet packet) {
@@ -47,20 +67,82 @@ public class Router implements IRouter {
     }
 
     public void receivePacket(final Packet packet) {
+        final var nextNeighbour = this.routePacket(packet);
+        if (nextNeighbour != null)
+            nextNeighbour.getKey().receivePacket(packet);
+    }
+
+    /**
+     * Handles a single hop of the packet at this router.
+     * @return neighbour the packet has to be sent to, null when it was delivered here or dropped for lack of a route
+     */
+    public Pair<Router, Connection> routePacket(final Packet packet) {
+        final var nextNeighbour = selectNeighbour(packet);
+        if (nextNeighbour != null)
+            forwardPacket(packet, nextNeighbour.getValue());
+        return nextNeighbour;
+    }
+
+    /**
+     * Handles a single hop like {@link #routePacket(Packet)}, but leaves counting the packet as forwarded to
+     * {@link #forwardPacket(Packet, Connection)}, for callers whose link may still refuse it.
+     */
+    public Pair<Router, Connection> selectNeighbour(final Packet packet) {
         packet.addToPath(this.id);
 
         if (this.isDestinationRouter.test(packet)) {
-            System.out.println("packet reached destination" + packet);
-            return;
+            packet.setState(Packet.State.DELIVERED);
+            deliveredPackets.increment();
+            if (metrics != null)
+                recordDelivery(packet);
+            packetListener.delivered(this, packet);
+            return null;
         }
 
-        final boolean tableWasUpdated = routingTable.tryUpdateTable(this);
-        if (tableWasUpdated)
+        if (convergesOnReceive && routingTable.tryUpdateTable(this))
             this.shareTableUpdateWithNeighbours();
 
-        final var nextNeighborToSend = routingTable.getNextHop(this, packet);
-        this.sendPacket(nextNeighborToSend, packet);
+        final var nextNeighbour = routingTable.getNextNeighbour(this, packet);
+        if (nextNeighbour == null)
+            dropPacket(packet);
+        return nextNeighbour;
+    }
+
+    /**
+     * Counts the packet as sent over the connection.
+     */
+    public void forwardPacket(final Packet packet, final Connection connection) {
+        forwardedPackets.increment();
+        connection.recordTransfer(packet);
+        packet.addPathWeight(connection.getWeight());
+    }
+
+    /**
+     * Records the hops of every delivery and the stretch of sampled ones. The stretch weighs the path by the routing
+     * table's link weights, the ones its shortest distance comes from, so a changed bond counts on both sides.
+     */
+    private void recordDelivery(final Packet packet) {
+        metrics.recordDelivery(packet.getPathLength() - 1);
+        if (packet.getSourceId() == id || !metrics.samplesStretch(packet.getId()))
+            return;
+
+        long pathWeight = 0;
+        for (int hop = 1; hop < packet.getPathLength(); hop++) {
+            final int linkWeight = routingTable.getLinkWeight(packet.getPathRouter(hop - 1), packet.getPathRouter(hop)).intValue();
+            if (linkWeight == IRoutingTable.NO_CONNECTION)
+                return;
+            pathWeight += linkWeight;
+        }
+        metrics.recordStretch(pathWeight, routingTable.getRouterDistance(packet.getSourceId(), id).longValue());
+    }
 
+    /**
+     * Drops the packet here, for lack of a route or because it ran out of hops.
+     */
+    public void dropPacket(final Packet packet) {
+        packet.setState(Packet.State.DROPPED);
+        droppedPackets.increment();
+        packetListener.dropped(this, packet);
     }
 
 
@@ -69,11 +151,46 @@ public class Router implements IRouter {
         return neighbours.get(neighbour);
     }
     public void setNeighbours(Map<Long, Pair<Router, Connection>> neighbours) {
+        detachGraph();
         this.neighbours = neighbours;
     }
-    public void setRoutingTable(final RoutingTable routingTable) {
+    void attachGraph(final CsrGraph graph, final int graphIndex) {
+        this.graph = graph;
+        this.graphIndex = graphIndex;
+    }
+    private void detachGraph() {
+        attachGraph(null, RouterIndex.NO_INDEX);
+    }
+    public CsrGraph getGraph() {
+        return graph;
+    }
+    public int getGraphIndex() {
+        return graphIndex;
+    }
+    public Collection<Pair<Router, Connection>> getNeighbourLinks() {
+        return Collections.unmodifiableCollection(neighbours.values());
+    }
+    public void setRoutingTable(final IRoutingTable routingTable) {
         this.routingTable = routingTable;
     }
+    public void setConvergesOnReceive(final boolean convergesOnReceive) {
+        this.convergesOnReceive = convergesOnReceive;
+    }
+    public void setMetrics(final NetworkMetrics metrics) {
+        this.metrics = metrics;
+    }
+    public void setPacketListener(final PacketListener packetListener) {
+        this.packetListener = packetListener;
+    }
+    public long getForwardedPackets() {
+        return forwardedPackets.sum();
+    }
+    public long getDeliveredPackets() {
+        return deliveredPackets.sum();
+    }
+    public long getDroppedPackets() {
+        return droppedPackets.sum();
+    }
     public int neighbourCount() { return neighbours.keySet().size(); }
     public boolean isNeighbour(final Router router) {
         return neighbours.containsKey(router.id);
@@ -0,0 +1,81 @@
+package ups.papersoda.netter.domain;
+
+import java.util.Collection;
+
+/**
+ * Maps router ids to dense indices in [0, size) through a primitive open addressing table.
+ */
+public class RouterIndex {
+    public static final int NO_INDEX = -1;
+
+    private final long[] ids;
+    private final long[] keys;
+    private final int[] slots;
+    private final int mask;
+
+
+    public RouterIndex(final long[] ids) {
+        this.ids = ids.clone();
+
+        int capacity = Integer.highestOneBit(Math.max(2, ids.length * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+
+        for (int i = 0; i < ids.length; i++)
+            insert(ids[i], i);
+    }
+
+    public static RouterIndex of(final Collection<? extends Router> routers) {
+        final long[] ids = new long[routers.size()];
+        int i = 0;
+        for (Router router : routers)
+            ids[i++] = router.id();
+        return new RouterIndex(ids);
+    }
+
+
+    private void insert(final long id, final int index) {
+        int slot = hash(id) & mask;
+        while (slots[slot] != 0) {
+            if (keys[slot] == id)
+                throw new IllegalArgumentException("router index: duplicate router id " + id);
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = id;
+        slots[slot] = index + 1;
+    }
+
+    private static int hash(final long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+    public int indexOf(final long id) {
+        int slot = hash(id) & mask;
+        while (slots[slot] != 0) {
+            if (keys[slot] == id)
+                return slots[slot] - 1;
+            slot = (slot + 1) & mask;
+        }
+        return NO_INDEX;
+    }
+
+    public boolean contains(final long id) {
+        return indexOf(id) != NO_INDEX;
+    }
+    public long idOf(final int index) {
+        return ids[index];
+    }
+    public int size() {
+        return ids.length;
+    }
+
+
+    @Override
+    public String toString() {
+        return "RouterIndex{" +
+                "size=" + ids.length +
+                '}';
+    }
+}
@@ -6,8 +6,7 @@ import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
-public class RoutingTable {
-    public static final int NO_CONNECTION = -1;
+public class RoutingTable implements IRoutingTable {
     /**
      * Map<RouterIDs, Map<AssociateRouterIDs, Pair<NextHopRouterId, CurrentShortestDistance>>>
      */
@@ -49,8 +48,8 @@ public class RoutingTable {
         final Set<Long> neighbours = currentRouter
                 .getNeighbours();
 
-        final Map<Long, Pair<Long, Number>> currentRouterRoutes = this
-                .getRouterRoutes(currentRouter.id());
+        final Map<Long, Pair<Long, Number>> currentRouterRoutes = routingTable
+                .get(currentRouter.id());
 
         neighbours.forEach(neighbour -> {
             Number costToNeighbour = this
@@ -132,7 +131,8 @@ public class RoutingTable {
     }
 
     public Map<Long, Pair<Long, Number>> getRouterRoutes(final long router) {
-        return routingTable.get(router);
+        final Map<Long, Pair<Long, Number>> routerRoutes = routingTable.get(router);
+        return routerRoutes == null ? null : Collections.unmodifiableMap(routerRoutes);
     }
 
     public Number getRouterDistance(final long fromRouter, final long toRouter) {
@@ -152,7 +152,7 @@ public class RoutingTable {
     }
 
     public Map<Long, Map<Long, Pair<Long, Number>>> getRoutingTable() {
-        return routingTable;
+        return Collections.unmodifiableMap(routingTable);
     }
 
     public void removeRouter(final long routerToRemove) {
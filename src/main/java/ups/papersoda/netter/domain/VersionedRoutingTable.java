@@ -0,0 +1,353 @@
+package ups.papersoda.netter.domain;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Routing table readable while it changes, read-copy-update style: readers go through the current immutable
+ * {@link Snapshot} behind a volatile reference and never block, a writer changes a private {@link DenseRoutingTable}
+ * and publishes the result as the next version. A version shares every row the writer did not touch with the one
+ * before it, so publishing costs the changed rows rather than the whole table.
+ * Versions always forward on one next hop, so a multipath table can't be wrapped.
+ */
+public class VersionedRoutingTable implements IRoutingTable {
+    private final DenseRoutingTable writer;
+    private volatile Snapshot current;
+
+
+    public VersionedRoutingTable(final DenseRoutingTable routingTable) {
+        if (routingTable.isMultipath())
+            throw new IllegalArgumentException("versioned routing table: multipath tables are not supported");
+        this.writer = routingTable;
+        publish();
+    }
+
+    public static VersionedRoutingTable createRoutingTable(final Collection<? extends Router> routers) {
+        return new VersionedRoutingTable(DenseRoutingTable.createRoutingTable(routers));
+    }
+
+
+    /**
+     * Applies changes to the working table and publishes them as one version.
+     * @return what the changes returned
+     */
+    public synchronized <T> T update(final Function<? super DenseRoutingTable, T> changes) {
+        try {
+            return changes.apply(writer);
+        } finally {
+            publish();
+        }
+    }
+
+    public synchronized boolean tryUpdateTable(final Router currentRouter) {
+        final boolean tableWasUpdated = writer.tryUpdateTable(currentRouter);
+        if (tableWasUpdated)
+            publish();
+        return tableWasUpdated;
+    }
+
+    public synchronized void setNewShortestPath(long currentRouter, long neighbour, long associateRouterId, Number newShortestPath) {
+        writer.setNewShortestPath(currentRouter, neighbour, associateRouterId, newShortestPath);
+        publish();
+    }
+
+    public synchronized void removeRouter(final long routerToRemove) {
+        writer.removeRouter(routerToRemove);
+        publish();
+    }
+
+    public synchronized void updateRouterBond(final long router, final long neighbour, final int newDistance) {
+        writer.updateRouterBond(router, neighbour, newDistance);
+        publish();
+    }
+
+    public synchronized void failLink(final long router, final long neighbour) {
+        writer.failLink(router, neighbour);
+        publish();
+    }
+
+    private void publish() {
+        if (writer.isMultipath())
+            throw new IllegalStateException("versioned routing table: multipath tables are not supported");
+
+        final Snapshot previous = current;
+        final int size = writer.size();
+        final CsrGraph graph = writer.getGraph();
+        final int[][] distanceRows = previous == null ? new int[size][] : previous.distanceRows.clone();
+        final int[][] nextHopRows = previous == null ? new int[size][] : previous.nextHopRows.clone();
+        final int[][] linkRows = previous == null ? new int[size][] : previous.linkRows.clone();
+        final boolean[] staleLinkRows = new boolean[size];
+
+        for (int row = 0; row < size; row++) {
+            if (!writer.takeRowChange(row) && previous != null)
+                continue;
+            distanceRows[row] = new int[size];
+            nextHopRows[row] = new int[size];
+            writer.copyRow(row, distanceRows[row], nextHopRows[row], 0);
+
+            // routers next to a changed row may now forward differently
+            staleLinkRows[row] = true;
+            for (int arc = graph.start(row); arc < graph.end(row); arc++)
+                staleLinkRows[graph.target(arc)] = true;
+        }
+
+        // links whose weight changed and routers removed since the previous version change forwarding around them
+        boolean linksChanged = previous == null;
+        boolean routersRemoved = previous == null;
+        for (int router = 0; previous != null && router < size; router++) {
+            if (previous.removed[router] != writer.isRemoved(router)) {
+                routersRemoved = true;
+                staleLinkRows[router] = true;
+                for (int arc = graph.start(router); arc < graph.end(router); arc++)
+                    staleLinkRows[graph.target(arc)] = true;
+            }
+            for (int arc = graph.start(router); arc < graph.end(router); arc++)
+                if (previous.linkWeights[arc] != writer.linkWeight(arc)) {
+                    linksChanged = true;
+                    staleLinkRows[router] = true;
+                }
+        }
+
+        current = new Snapshot(
+                previous == null ? 0 : previous.version + 1,
+                graph,
+                distanceRows,
+                nextHopRows,
+                linkRows,
+                previous == null ? null : staleLinkRows,
+                linksChanged ? writer.copyLinkWeights() : previous.linkWeights,
+                routersRemoved ? writer.copyRemoved() : previous.removed,
+                writer.isConverged()
+        );
+    }
+
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    public Long getNextHop(final Router currentRouter, final Packet packet) {
+        return current.getNextHop(currentRouter.id(), packet.getDestId());
+    }
+
+    @Override
+    public Pair<Router, Connection> getNextNeighbour(final Router currentRouter, final Packet packet) {
+        return current.getNextNeighbour(currentRouter.id(), packet.getDestId());
+    }
+
+    public Long getNextShortestPathRouter(final long from, final long to) {
+        return current.getNextShortestPathRouter(from, to);
+    }
+
+    public Number getCurrentShortestPathDistance(final long from, final long to) {
+        return current.getDistance(from, to);
+    }
+
+    public Number getRouterDistance(final long fromRouter, final long toRouter) {
+        return current.getDistance(fromRouter, toRouter);
+    }
+
+    public Number getDistanceFromRouterToNeighbour(final long routerId, final long neighbourId) {
+        return current.getDistance(routerId, neighbourId);
+    }
+
+    @Override
+    public Number getLinkWeight(final long router, final long neighbour) {
+        return current.getLinkWeight(router, neighbour);
+    }
+
+    public Set<Long> getRouterIds() {
+        return current.getRouterIds();
+    }
+    public Set<Long> getAssociateRouterMap(long routerId) {
+        final Snapshot snapshot = current;
+        if (!snapshot.hasRouter(routerId))
+            return new HashSet<>();
+        final Set<Long> associateRouterIds = snapshot.getRouterIds();
+        associateRouterIds.remove(routerId);
+        return associateRouterIds;
+    }
+
+    public boolean hasRouter(final long router) {
+        return current.hasRouter(router);
+    }
+
+    @Override
+    public boolean isConverged() {
+        return current.isConverged();
+    }
+    public long getVersion() {
+        return current.getVersion();
+    }
+
+
+    @Override
+    public String toString() {
+        return "VersionedRoutingTable{" +
+                "version=" + current.getVersion() +
+                ", routers=" + getRouterIds() +
+                '}';
+    }
+
+    /**
+     * Immutable routing table version, every read through it sees the same routes.
+     * Next hops come compiled per router like in a {@link ForwardingTable}, a version recompiles only the rows of
+     * routers next to a changed route, a reweighted link or a removed router and shares the others with the version
+     * before it.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final CsrGraph graph;
+        private final RouterIndex index;
+        private final int[][] distanceRows;
+        private final int[][] nextHopRows;
+        /**
+         * linkRows[fromIndex][toIndex] as arc of the from router to forward on, NO_LINK without a route
+         */
+        private final int[][] linkRows;
+        private final int[] linkWeights;
+        private final boolean[] removed;
+        private final boolean converged;
+
+
+        /**
+         * @param staleLinkRows rows of linkRows to compile, null to compile all of them
+         */
+        private Snapshot(
+                long version, CsrGraph graph, int[][] distanceRows, int[][] nextHopRows, int[][] linkRows,
+                boolean[] staleLinkRows, int[] linkWeights, boolean[] removed, boolean converged
+        ) {
+            this.version = version;
+            this.graph = graph;
+            this.index = graph.getRouterIndex();
+            this.distanceRows = distanceRows;
+            this.nextHopRows = nextHopRows;
+            this.linkRows = linkRows;
+            this.linkWeights = linkWeights;
+            this.removed = removed;
+            this.converged = converged;
+
+            for (int from = 0; from < linkRows.length; from++)
+                if (staleLinkRows == null || staleLinkRows[from])
+                    linkRows[from] = compileLinks(from);
+        }
+
+        private int[] compileLinks(final int from) {
+            final int[] links = new int[linkRows.length];
+            for (int to = 0; to < links.length; to++)
+                links[to] = removed[from] || removed[to] ? DenseRoutingTable.NO_LINK : scanNextHopLink(from, to);
+            return links;
+        }
+
+
+        public Long getNextHop(final long from, final long to) {
+            final int link = nextHopLink(row(from), column(to));
+            return link == DenseRoutingTable.NO_LINK ? null : index.idOf(graph.target(link));
+        }
+
+        public Pair<Router, Connection> getNextNeighbour(final long from, final long to) {
+            final int link = nextHopLink(row(from), column(to));
+            return link == DenseRoutingTable.NO_LINK ? null : graph.neighbourLink(link);
+        }
+
+        /**
+         * Same choice as {@link DenseRoutingTable#nextHopLink(int, int)} over this version's routes.
+         */
+        public int nextHopLink(final int from, final int to) {
+            return removed[to] ? DenseRoutingTable.NO_LINK : linkRows[from][to];
+        }
+
+        int[] linkRow(final int from) {
+            return linkRows[from];
+        }
+
+        private int scanNextHopLink(final int from, final int to) {
+            int nextHop = DenseRoutingTable.NO_LINK;
+            long currentMin = Long.MAX_VALUE;
+
+            for (int arc = graph.start(from); arc < graph.end(from); arc++) {
+                final int neighbour = graph.target(arc);
+                if (!graph.isOutgoing(arc) || removed[neighbour] || linkWeights[arc] == NO_CONNECTION)
+                    continue;
+
+                final int neighbourDistance = distanceRows[neighbour][to];
+                if (neighbourDistance == NO_CONNECTION)
+                    continue;
+
+                final long cost = (long)linkWeights[arc] + neighbourDistance;
+                if (cost >= currentMin)
+                    continue;
+
+                currentMin = cost;
+                nextHop = arc;
+            }
+
+            return nextHop;
+        }
+
+        public Long getNextShortestPathRouter(final long from, final long to) {
+            final int nextHop = nextHop(row(from), column(to));
+            return nextHop == DenseRoutingTable.NO_HOP ? null : index.idOf(nextHop);
+        }
+
+        public int getDistance(final long from, final long to) {
+            return distance(row(from), column(to));
+        }
+
+        public int getLinkWeight(final long router, final long neighbour) {
+            final int from = row(router);
+            final int to = row(neighbour);
+            for (int arc = graph.start(from); arc < graph.end(from); arc++)
+                if (graph.target(arc) == to)
+                    return linkWeights[arc];
+            return NO_CONNECTION;
+        }
+
+        public Set<Long> getRouterIds() {
+            final Set<Long> routerIds = new LinkedHashSet<>();
+            for (int i = 0; i < index.size(); i++)
+                if (!removed[i])
+                    routerIds.add(index.idOf(i));
+            return routerIds;
+        }
+
+        public boolean hasRouter(final long router) {
+            final int i = index.indexOf(router);
+            return i != RouterIndex.NO_INDEX && !removed[i];
+        }
+
+        private int row(final long routerId) {
+            final int i = index.indexOf(routerId);
+            if (i == RouterIndex.NO_INDEX || removed[i])
+                throw new IllegalArgumentException("routing table: unknown router " + routerId);
+            return i;
+        }
+
+        private int column(final long routerId) {
+            final int i = index.indexOf(routerId);
+            if (i == RouterIndex.NO_INDEX)
+                throw new IllegalArgumentException("routing table: unknown router " + routerId);
+            return i;
+        }
+
+        /**
+         * Rows shared with older versions may still hold routes to a router removed since, those read as no route.
+         */
+        public int distance(final int from, final int to) {
+            return removed[to] ? NO_CONNECTION : distanceRows[from][to];
+        }
+        public int nextHop(final int from, final int to) {
+            return removed[to] ? DenseRoutingTable.NO_HOP : nextHopRows[from][to];
+        }
+        public long getVersion() {
+            return version;
+        }
+        public RouterIndex getRouterIndex() {
+            return index;
+        }
+        public boolean isConverged() {
+            return converged;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ups.papersoda.netter.domain.listener;
+
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.Router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Hands events to a sink on a background thread, in batches of up to batchSize. Forwarding threads only offer to a
+ * bounded queue: when the sink falls behind and the queue is full, events are discarded and counted instead of
+ * slowing forwarding down. The sink gets every batch as a list of its own, free to keep it.
+ */
+public class BatchingPacketListener implements PacketListener, AutoCloseable {
+    private static final long POLL_MILLIS = 50;
+
+    private final Consumer<? super List<PacketEvent>> sink;
+    private final BlockingQueue<PacketEvent> events;
+    private final int batchSize;
+    private final LongAdder discardedEvents = new LongAdder();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final Thread worker;
+    private volatile boolean closed;
+
+
+    public BatchingPacketListener(final Consumer<? super List<PacketEvent>> sink, final int capacity, final int batchSize) {
+        if (capacity < 1 || batchSize < 1)
+            throw new IllegalArgumentException("packet listener: capacity and batch size have to be positive");
+
+        this.sink = sink;
+        this.events = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.worker = new Thread(this::drain, "packet-listener");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+
+    @Override
+    public void delivered(final Router router, final Packet packet) {
+        offer(router, packet);
+    }
+
+    @Override
+    public void dropped(final Router router, final Packet packet) {
+        offer(router, packet);
+    }
+
+    private void offer(final Router router, final Packet packet) {
+        if (closed || !events.offer(PacketEvent.of(router, packet)))
+            discardedEvents.increment();
+    }
+
+    private void drain() {
+        final List<PacketEvent> batch = new ArrayList<>(batchSize);
+        try {
+            while (!closed || !events.isEmpty()) {
+                final PacketEvent first = events.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+
+                batch.add(first);
+                events.drainTo(batch, batchSize - 1);
+                sink.accept(List.copyOf(batch));
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failure.set(e);
+        }
+    }
+
+    /**
+     * Stops taking events, waits until the ones queued reached the sink.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("packet listener: interrupted while draining events", e);
+        }
+
+        if (failure.get() != null)
+            throw new IllegalStateException("packet listener: sink failed", failure.get());
+    }
+
+    public long getDiscardedEvents() {
+        return discardedEvents.sum();
+    }
+    public int getQueuedEvents() {
+        return events.size();
+    }
+}
@@ -0,0 +1,66 @@
+package ups.papersoda.netter.domain.listener;
+
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.Router;
+
+/**
+ * Immutable copy of what a listener was told, safe to keep after the packet is reused.
+ */
+public class PacketEvent {
+    private final long packetId;
+    private final long sourceId;
+    private final long destId;
+    private final long routerId;
+    private final int hops;
+    private final Packet.State state;
+
+
+    public PacketEvent(long packetId, long sourceId, long destId, long routerId, int hops, Packet.State state) {
+        this.packetId = packetId;
+        this.sourceId = sourceId;
+        this.destId = destId;
+        this.routerId = routerId;
+        this.hops = hops;
+        this.state = state;
+    }
+
+    public static PacketEvent of(final Router router, final Packet packet) {
+        return new PacketEvent(
+                packet.getId(), packet.getSourceId(), packet.getDestId(), router.id(),
+                packet.getPathLength() - 1, packet.getState()
+        );
+    }
+
+
+    public long getPacketId() {
+        return packetId;
+    }
+    public long getSourceId() {
+        return sourceId;
+    }
+    public long getDestId() {
+        return destId;
+    }
+    public long getRouterId() {
+        return routerId;
+    }
+    public int getHops() {
+        return hops;
+    }
+    public Packet.State getState() {
+        return state;
+    }
+
+
+    @Override
+    public String toString() {
+        return "PacketEvent{" +
+                "packetId=" + packetId +
+                ", sourceId=" + sourceId +
+                ", destId=" + destId +
+                ", routerId=" + routerId +
+                ", hops=" + hops +
+                ", state=" + state +
+                '}';
+    }
+}
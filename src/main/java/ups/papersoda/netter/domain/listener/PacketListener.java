@@ -0,0 +1,19 @@
+package ups.papersoda.netter.domain.listener;
+
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.Router;
+
+/**
+ * Told about every packet a router delivers or drops. Called on the forwarding thread, so implementations have to
+ * return quickly and must not keep the packet, which may be reused once transmission ends.
+ */
+public interface PacketListener {
+    PacketListener NONE = new PacketListener() {};
+
+
+    default void delivered(final Router router, final Packet packet) {
+    }
+
+    default void dropped(final Router router, final Packet packet) {
+    }
+}
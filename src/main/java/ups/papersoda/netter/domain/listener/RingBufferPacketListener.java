@@ -0,0 +1,126 @@
+package ups.papersoda.netter.domain.listener;
+
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.Router;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the latest events in preallocated primitive slots, overwriting the oldest ones, so listening allocates nothing.
+ * Writers claim a sequence with one atomic increment, take its slot over from the older event there and publish it by
+ * its sequence, readers skip slots that were being overwritten while they read them. A writer that finds its slot
+ * still being written or already holding a newer event, only possible once writers lap the whole ring, discards its
+ * event and counts it instead of writing over the other one.
+ */
+public class RingBufferPacketListener implements PacketListener {
+    private static final Packet.State[] STATES = Packet.State.values();
+    private static final long EMPTY = -1L;
+    private static final long WRITING = -2L;
+
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final LongAdder discardedEvents = new LongAdder();
+    /**
+     * sequence of the event a slot holds, WRITING while it is written
+     */
+    private final AtomicLongArray sequences;
+    private final long[] packetIds;
+    private final long[] sourceIds;
+    private final long[] destIds;
+    private final long[] routerIds;
+    private final int[] hops;
+    private final byte[] states;
+
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public RingBufferPacketListener(final int capacity) {
+        if (capacity < 1 || capacity > 1 << 30)
+            throw new IllegalArgumentException("packet listener: invalid capacity " + capacity);
+
+        final int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        this.packetIds = new long[size];
+        this.sourceIds = new long[size];
+        this.destIds = new long[size];
+        this.routerIds = new long[size];
+        this.hops = new int[size];
+        this.states = new byte[size];
+        for (int slot = 0; slot < size; slot++)
+            sequences.set(slot, EMPTY);
+    }
+
+
+    @Override
+    public void delivered(final Router router, final Packet packet) {
+        write(router, packet);
+    }
+
+    @Override
+    public void dropped(final Router router, final Packet packet) {
+        write(router, packet);
+    }
+
+    private void write(final Router router, final Packet packet) {
+        final long sequence = nextSequence.getAndIncrement();
+        final int slot = (int)sequence & mask;
+        final long previous = sequences.get(slot);
+        if (previous == WRITING || previous > sequence || !sequences.compareAndSet(slot, previous, WRITING)) {
+            discardedEvents.increment();
+            return;
+        }
+        VarHandle.storeStoreFence();
+        packetIds[slot] = packet.getId();
+        sourceIds[slot] = packet.getSourceId();
+        destIds[slot] = packet.getDestId();
+        routerIds[slot] = router.id();
+        hops[slot] = packet.getPathLength() - 1;
+        states[slot] = (byte)packet.getState().ordinal();
+        sequences.set(slot, sequence);
+    }
+
+    /**
+     * Latest events, oldest first, at most capacity of them.
+     */
+    public List<PacketEvent> latest() {
+        final long end = nextSequence.get();
+        final long start = Math.max(0, end - capacity());
+        final List<PacketEvent> events = new ArrayList<>((int)(end - start));
+
+        for (long sequence = start; sequence < end; sequence++) {
+            final int slot = (int)sequence & mask;
+            if (sequences.get(slot) != sequence)
+                continue;
+            final PacketEvent event = new PacketEvent(
+                    packetIds[slot], sourceIds[slot], destIds[slot], routerIds[slot], hops[slot], STATES[states[slot]]
+            );
+            VarHandle.acquireFence();
+            if (sequences.get(slot) == sequence)
+                events.add(event);
+        }
+        return events;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+    /**
+     * Events claimed so far, including overwritten and discarded ones.
+     */
+    public long getWrittenEvents() {
+        return nextSequence.get();
+    }
+    /**
+     * Events given up because another writer held or had already overwritten their slot.
+     */
+    public long getDiscardedEvents() {
+        return discardedEvents.sum();
+    }
+}
@@ -0,0 +1,6 @@
+package ups.papersoda.netter.domain.mapper;
+
+@FunctionalInterface
+public interface ConnectionConsumer {
+    void accept(final long id, final long fromRouter, final long toRouter, final int weight);
+}
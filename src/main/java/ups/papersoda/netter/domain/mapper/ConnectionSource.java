@@ -0,0 +1,8 @@
+package ups.papersoda.netter.domain.mapper;
+
+/**
+ * Topology given as a stream of connections, routers are the connection endpoints.
+ */
+public interface ConnectionSource {
+    void forEachConnection(final ConnectionConsumer consumer);
+}
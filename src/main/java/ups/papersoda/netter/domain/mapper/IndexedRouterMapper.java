@@ -0,0 +1,84 @@
+package ups.papersoda.netter.domain.mapper;
+
+import ups.papersoda.netter.domain.Connection;
+import ups.papersoda.netter.domain.CsrGraph;
+import ups.papersoda.netter.domain.Router;
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps routers in time linear to routers plus connections: DTOs are indexed by id in one pass and every connection is
+ * resolved against that index in a second one. Produces the same routers as {@link RouterMapper}, a connection to an
+ * unknown router is skipped and the first connection to a neighbour wins. The routers come attached to their
+ * {@link CsrGraph}.
+ */
+public class IndexedRouterMapper implements RouterMapperInt {
+    public Map<Long, Router> transformToRouters(Collection<? extends RouterDTO> routerDTOS) {
+        final Map<Long, Router> routers = new HashMap<>(capacityFor(routerDTOS.size()));
+
+        for (RouterDTO routerDTO : routerDTOS) {
+            final Router router = new Router(
+                    routerDTO.id(),
+                    new HashMap<>(capacityFor(routerDTO.getConnections().size()))
+            );
+            if (routers.putIfAbsent(routerDTO.id(), router) != null)
+                throw new IllegalArgumentException("router mapper: duplicate router id " + routerDTO.id());
+        }
+
+        for (RouterDTO routerDTO : routerDTOS) {
+            final Router router = routers.get(routerDTO.id());
+            for (ConnectionDTO connectionDTO : routerDTO.getConnections())
+                connect(router, routers.get(connectionDTO.getToRouter()), connectionDTO);
+        }
+
+        CsrGraph.of(routers.values());
+        return routers;
+    }
+
+    /**
+     * Creates routers as their ids show up in the stream, no DTO is materialised along the way.
+     */
+    @Override
+    public Map<Long, Router> transformToRouters(ConnectionSource connections) {
+        final Map<Long, Router> routers = new HashMap<>();
+
+        connections.forEachConnection((id, fromRouter, toRouter, weight) -> {
+            final Router router = routers.computeIfAbsent(fromRouter, IndexedRouterMapper::createRouter);
+            final Router neighbour = routers.computeIfAbsent(toRouter, IndexedRouterMapper::createRouter);
+            if (router.isNeighbour(neighbour))
+                return;
+
+            final Connection connection = new Connection(weight, toRouter, fromRouter);
+            connection.setId(id);
+            router.addNeighbour(toRouter, neighbour, connection);
+        });
+
+        CsrGraph.of(routers.values());
+        return routers;
+    }
+
+    private static Router createRouter(final long id) {
+        return new Router(id, new HashMap<>(4));
+    }
+
+    private void connect(final Router router, final Router neighbour, final ConnectionDTO connectionDTO) {
+        if (neighbour == null || router.isNeighbour(neighbour))
+            return;
+
+        final Connection connection = new Connection(
+                connectionDTO.getWeight().intValue(),
+                neighbour.id(),
+                connectionDTO.getFromRouter()
+        );
+        connection.setId(connectionDTO.getId());
+        router.addNeighbour(neighbour.id(), neighbour, connection);
+    }
+
+    static int capacityFor(final int entries) {
+        return (int)(entries / 0.75f) + 1;
+    }
+}
@@ -84,6 +84,8 @@ public class RouterMapper implements RouterMapperInt {
         if (connectionDTO == null)
             throw new NullPointerException("create connection: connection can't be created");
 
-        return new Connection(connectionDTO.getWeight().intValue(), routerToConnect, connectionDTO.getFromRouter());
+        var connection = new Connection(connectionDTO.getWeight().intValue(), routerToConnect, connectionDTO.getFromRouter());
+        connection.setId(connectionDTO.getId());
+        return connection;
     }
 }
@@ -1,11 +1,31 @@
 package ups.papersoda.netter.domain.mapper;
 
 import ups.papersoda.netter.domain.Router;
+import ups.papersoda.netter.dto.ConnectionDTO;
 import ups.papersoda.netter.dto.RouterDTO;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public interface RouterMapperInt {
     Map<Long, Router> transformToRouters(Collection<? extends RouterDTO> routerDTOS);
+
+    /**
+     * Maps a streamed topology, by default through DTOs built from the whole stream.
+     */
+    default Map<Long, Router> transformToRouters(ConnectionSource connections) {
+        final Map<Long, List<ConnectionDTO>> connectionDTOs = new LinkedHashMap<>();
+        connections.forEachConnection((id, fromRouter, toRouter, weight) -> {
+            connectionDTOs.computeIfAbsent(fromRouter, router -> new ArrayList<>())
+                    .add(new ConnectionDTO(id, weight, fromRouter, toRouter));
+            connectionDTOs.computeIfAbsent(toRouter, router -> new ArrayList<>());
+        });
+
+        final List<RouterDTO> routerDTOs = new ArrayList<>(connectionDTOs.size());
+        connectionDTOs.forEach((router, routerConnections) -> routerDTOs.add(new RouterDTO(router, routerConnections)));
+        return transformToRouters(routerDTOs);
+    }
 }
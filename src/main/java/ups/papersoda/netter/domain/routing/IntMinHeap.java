@@ -0,0 +1,108 @@
+package ups.papersoda.netter.domain.routing;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary min heap over items in [0, capacity) with int priorities and decrease-key, allocation free once built.
+ */
+public class IntMinHeap {
+    private static final int ABSENT = -1;
+
+    private final int[] heap;
+    private final int[] positions;
+    private final int[] priorities;
+    private int size;
+
+
+    public IntMinHeap(final int capacity) {
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.priorities = new int[capacity];
+        Arrays.fill(positions, ABSENT);
+    }
+
+
+    /**
+     * Inserts the item or lowers its priority, a higher priority than the queued one is ignored.
+     */
+    public void offer(final int item, final int priority) {
+        final int position = positions[item];
+        if (position == ABSENT) {
+            priorities[item] = priority;
+            heap[size] = item;
+            positions[item] = size;
+            siftUp(size++);
+            return;
+        }
+        if (priority >= priorities[item])
+            return;
+        priorities[item] = priority;
+        siftUp(position);
+    }
+
+    public int poll() {
+        final int item = heap[0];
+        positions[item] = ABSENT;
+        if (--size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return item;
+    }
+
+    public int peekPriority() {
+        return priorities[heap[0]];
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            positions[heap[i]] = ABSENT;
+        size = 0;
+    }
+
+    public boolean contains(final int item) {
+        return positions[item] != ABSENT;
+    }
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    public int size() {
+        return size;
+    }
+
+    private void siftUp(int position) {
+        final int item = heap[position];
+        final int priority = priorities[item];
+        while (position > 0) {
+            final int parent = (position - 1) >>> 1;
+            final int parentItem = heap[parent];
+            if (priorities[parentItem] <= priority)
+                break;
+            heap[position] = parentItem;
+            positions[parentItem] = position;
+            position = parent;
+        }
+        heap[position] = item;
+        positions[item] = position;
+    }
+
+    private void siftDown(int position) {
+        final int item = heap[position];
+        final int priority = priorities[item];
+        final int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            final int right = child + 1;
+            if (right < size && priorities[heap[right]] < priorities[heap[child]])
+                child = right;
+            if (priorities[heap[child]] >= priority)
+                break;
+            heap[position] = heap[child];
+            positions[heap[child]] = position;
+            position = child;
+        }
+        heap[position] = item;
+        positions[item] = position;
+    }
+}
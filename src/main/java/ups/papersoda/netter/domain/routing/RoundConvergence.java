@@ -0,0 +1,152 @@
+package ups.papersoda.netter.domain.routing;
+
+import ups.papersoda.netter.domain.CsrGraph;
+import ups.papersoda.netter.domain.DenseRoutingTable;
+import ups.papersoda.netter.domain.Router;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static ups.papersoda.netter.domain.IRoutingTable.NO_CONNECTION;
+
+/**
+ * Distance-vector convergence in synchronous, Jacobi style rounds: every router relaxes its vector from the vectors of
+ * the previous round, routers are spread over a fork/join pool and the vectors are double buffered, so a round needs
+ * no locking. Stops after the first round that changes nothing.
+ */
+public class RoundConvergence {
+    private static final int LEAVES_PER_WORKER = 8;
+
+    private final ForkJoinPool pool;
+
+
+    public RoundConvergence(final ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public RoundConvergence() {
+        this(ForkJoinPool.commonPool());
+    }
+
+
+    public static DenseRoutingTable createRoutingTable(final Collection<? extends Router> routers) {
+        final DenseRoutingTable routingTable = DenseRoutingTable.createRoutingTable(routers);
+        new RoundConvergence().converge(routingTable);
+        return routingTable;
+    }
+
+    /**
+     * @return number of rounds run, the last one being the round without changes
+     */
+    public int converge(final DenseRoutingTable routingTable) {
+        final int size = routingTable.size();
+        int[] previous = new int[size * size];
+        int[] next = new int[size * size];
+        final int[] nextHops = new int[size * size];
+        for (int router = 0; router < size; router++)
+            routingTable.copyRow(router, previous, nextHops, router * size);
+
+        final int leafSize = Math.max(1, size / (pool.getParallelism() * LEAVES_PER_WORKER));
+        int rounds = 0;
+        boolean changed = true;
+        while (changed) {
+            final Round round = new Round(routingTable, previous, next, nextHops, 0, size, leafSize);
+            pool.invoke(round);
+            changed = round.changed;
+            rounds++;
+
+            final int[] swap = previous;
+            previous = next;
+            next = swap;
+        }
+
+        for (int router = 0; router < size; router++)
+            if (!routingTable.isRemoved(router))
+                routingTable.setRow(router, previous, nextHops, router * size);
+        routingTable.markConverged();
+        return rounds;
+    }
+
+    /**
+     * Writes next[router] from previous, next hops only change within a router's own row.
+     * @return whether the router's vector changed
+     */
+    static boolean relax(
+            final DenseRoutingTable routingTable,
+            final int router,
+            final int[] previous,
+            final int[] next,
+            final int[] nextHops
+    ) {
+        final int size = routingTable.size();
+        final int row = router * size;
+        System.arraycopy(previous, row, next, row, size);
+        if (routingTable.isRemoved(router))
+            return false;
+
+        final CsrGraph graph = routingTable.getGraph();
+        boolean changed = false;
+        for (int arc = graph.start(router); arc < graph.end(router); arc++) {
+            final int neighbour = graph.target(arc);
+            if (routingTable.isRemoved(neighbour) || routingTable.isLinkDown(arc))
+                continue;
+
+            final int weight = routingTable.linkWeight(arc);
+            final int neighbourRow = neighbour * size;
+            for (int destination = 0; destination < size; destination++) {
+                final int neighbourDistance = previous[neighbourRow + destination];
+                if (neighbourDistance == NO_CONNECTION)
+                    continue;
+
+                final int possibleShortestPath = neighbourDistance + weight;
+                final int currentShortestPath = next[row + destination];
+                if (currentShortestPath != NO_CONNECTION && currentShortestPath <= possibleShortestPath)
+                    continue;
+
+                next[row + destination] = possibleShortestPath;
+                nextHops[row + destination] = neighbour;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static class Round extends RecursiveAction {
+        private final DenseRoutingTable routingTable;
+        private final int[] previous;
+        private final int[] next;
+        private final int[] nextHops;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private boolean changed;
+
+
+        Round(DenseRoutingTable routingTable, int[] previous, int[] next, int[] nextHops, int from, int to, int leafSize) {
+            this.routingTable = routingTable;
+            this.previous = previous;
+            this.next = next;
+            this.nextHops = nextHops;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+
+        @Override
+        protected void compute() {
+            if (to - from > leafSize) {
+                final int middle = (from + to) >>> 1;
+                final Round left = new Round(routingTable, previous, next, nextHops, from, middle, leafSize);
+                final Round right = new Round(routingTable, previous, next, nextHops, middle, to, leafSize);
+                invokeAll(left, right);
+                changed = left.changed || right.changed;
+                return;
+            }
+
+            for (int router = from; router < to; router++)
+                changed |= relax(routingTable, router, previous, next, nextHops);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ups.papersoda.netter.domain.routing;
+
+import ups.papersoda.netter.domain.CsrGraph;
+import ups.papersoda.netter.domain.DenseRoutingTable;
+import ups.papersoda.netter.domain.Router;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static ups.papersoda.netter.domain.IRoutingTable.NO_CONNECTION;
+
+/**
+ * Builds a fully converged dense routing table by running Dijkstra from every source across a fork/join pool.
+ * Each source only writes its own row, so sources never contend.
+ */
+public class ShortestPathBuilder {
+    private static final int LEAVES_PER_WORKER = 8;
+
+    private final ForkJoinPool pool;
+
+
+    public ShortestPathBuilder(final ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public ShortestPathBuilder() {
+        this(ForkJoinPool.commonPool());
+    }
+
+
+    public static DenseRoutingTable createRoutingTable(final Collection<? extends Router> routers) {
+        return new ShortestPathBuilder().build(routers);
+    }
+
+    public DenseRoutingTable build(final Collection<? extends Router> routers) {
+        final DenseRoutingTable routingTable = DenseRoutingTable.createRoutingTable(routers);
+        converge(routingTable);
+        return routingTable;
+    }
+
+    public void converge(final DenseRoutingTable routingTable) {
+        final int size = routingTable.size();
+        final int leafSize = Math.max(1, size / (pool.getParallelism() * LEAVES_PER_WORKER));
+        pool.invoke(new SourceRange(routingTable, 0, size, leafSize));
+        routingTable.markConverged();
+    }
+
+    static void shortestPaths(
+            final DenseRoutingTable routingTable,
+            final int source,
+            final int[] distances,
+            final int[] firstHops,
+            final IntMinHeap heap
+    ) {
+        Arrays.fill(distances, NO_CONNECTION);
+        Arrays.fill(firstHops, DenseRoutingTable.NO_HOP);
+        distances[source] = 0;
+        firstHops[source] = source;
+        heap.offer(source, 0);
+        final CsrGraph graph = routingTable.getGraph();
+
+        while (!heap.isEmpty()) {
+            final int router = heap.poll();
+            final int distance = distances[router];
+
+            for (int arc = graph.start(router); arc < graph.end(router); arc++) {
+                final int neighbour = graph.target(arc);
+                if (routingTable.isRemoved(neighbour) || routingTable.isLinkDown(arc))
+                    continue;
+
+                final int possibleShortestPath = distance + routingTable.linkWeight(arc);
+                if (distances[neighbour] != NO_CONNECTION && distances[neighbour] <= possibleShortestPath)
+                    continue;
+
+                distances[neighbour] = possibleShortestPath;
+                firstHops[neighbour] = router == source ? neighbour : firstHops[router];
+                heap.offer(neighbour, possibleShortestPath);
+            }
+        }
+    }
+
+    private static class SourceRange extends RecursiveAction {
+        private final DenseRoutingTable routingTable;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+
+        SourceRange(DenseRoutingTable routingTable, int from, int to, int leafSize) {
+            this.routingTable = routingTable;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+
+        @Override
+        protected void compute() {
+            if (to - from > leafSize) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(
+                        new SourceRange(routingTable, from, middle, leafSize),
+                        new SourceRange(routingTable, middle, to, leafSize)
+                );
+                return;
+            }
+
+            final int size = routingTable.size();
+            final int[] distances = new int[size];
+            final int[] firstHops = new int[size];
+            final IntMinHeap heap = new IntMinHeap(size);
+
+            for (int source = from; source < to; source++) {
+                if (routingTable.isRemoved(source))
+                    continue;
+                shortestPaths(routingTable, source, distances, firstHops, heap);
+                for (int destination = 0; destination < size; destination++)
+                    if (!routingTable.isRemoved(destination))
+                        routingTable.setRoute(source, destination, distances[destination], firstHops[destination]);
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package ups.papersoda.netter.domain.routing;
+
+import ups.papersoda.netter.domain.CsrGraph;
+import ups.papersoda.netter.domain.DenseRoutingTable;
+
+import static ups.papersoda.netter.domain.IRoutingTable.NO_CONNECTION;
+
+/**
+ * Keeps a converged {@link DenseRoutingTable} converged across link weight changes and router failures, in the manner
+ * of Ramalingam and Reps: only destinations whose shortest paths used the changed link are looked at, and for those
+ * only the routers that lost every shortest path are recomputed, starting from the routers around them.
+ * Distances end up equal to a full rebuild. Link weights have to be positive, a failed link counts as infinitely long.
+ */
+public class ShortestPathRepair {
+    private final DenseRoutingTable routingTable;
+    private final CsrGraph graph;
+    private final int size;
+    private final IntMinHeap heap;
+    private final int[] examinedIn;
+    private final int[] affectedIn;
+    private final int[] affected;
+    private int affectedCount;
+    private int epoch;
+
+
+    public ShortestPathRepair(final DenseRoutingTable routingTable) {
+        this.routingTable = routingTable;
+        this.graph = routingTable.getGraph();
+        this.size = routingTable.size();
+        this.heap = new IntMinHeap(size);
+        this.examinedIn = new int[size];
+        this.affectedIn = new int[size];
+        this.affected = new int[size];
+    }
+
+
+    /**
+     * Sets the weight of the link between both routers and repairs the routes it changes, a failed link comes back up.
+     * @return number of destinations whose routes were repaired
+     */
+    public int updateLinkWeight(final int router, final int neighbour, final int weight) {
+        if (weight < 1)
+            throw new IllegalArgumentException("route repair: link weight has to be positive, was " + weight);
+        return changeLinkWeight(router, neighbour, weight);
+    }
+
+    /**
+     * Takes the link between both routers down and reroutes every route that used it.
+     * @return number of destinations whose routes were repaired
+     */
+    public int failLink(final int router, final int neighbour) {
+        return changeLinkWeight(router, neighbour, NO_CONNECTION);
+    }
+
+    private int changeLinkWeight(final int router, final int neighbour, final int weight) {
+        if (!routingTable.isLinked(router, neighbour))
+            throw new IllegalArgumentException("route repair: routers " + router + " and " + neighbour + " are not linked");
+
+        final int oldWeight = routingTable.linkWeightBetween(router, neighbour);
+        routingTable.setLinkWeight(router, neighbour, weight);
+        if (weight == oldWeight)
+            return 0;
+
+        final boolean shorter = oldWeight == NO_CONNECTION || (weight != NO_CONNECTION && weight < oldWeight);
+        int repaired = 0;
+        for (int destination = 0; destination < size; destination++) {
+            if (routingTable.isRemoved(destination))
+                continue;
+
+            final boolean changed = shorter
+                    ? shorten(destination, router, neighbour, weight) | shorten(destination, neighbour, router, weight)
+                    : lengthen(destination, usesLink(router, neighbour, oldWeight, destination), usesLink(neighbour, router, oldWeight, destination));
+            if (changed)
+                repaired++;
+        }
+        return repaired;
+    }
+
+    /**
+     * Removes the router and reroutes every route that went through it.
+     * @return number of destinations whose routes were repaired
+     */
+    public int removeRouter(final int removedRouter) {
+        final int[] removedDistances = new int[size];
+        for (int destination = 0; destination < size; destination++)
+            removedDistances[destination] = routingTable.distance(removedRouter, destination);
+        routingTable.markRemoved(removedRouter);
+
+        int repaired = 0;
+        for (int destination = 0; destination < size; destination++) {
+            if (routingTable.isRemoved(destination) || removedDistances[destination] == NO_CONNECTION)
+                continue;
+
+            beginDestination();
+            for (int arc = graph.start(removedRouter); arc < graph.end(removedRouter); arc++) {
+                final int neighbour = graph.target(arc);
+                if (neighbour != destination && !routingTable.isRemoved(neighbour) &&
+                        isTight(neighbour, destination, routingTable.linkWeight(arc), removedDistances[destination]))
+                    heap.offer(neighbour, routingTable.distance(neighbour, destination));
+            }
+            if (repairAffected(destination))
+                repaired++;
+        }
+        return repaired;
+    }
+
+    private int usesLink(final int router, final int neighbour, final int oldWeight, final int destination) {
+        if (router == destination || !isTight(router, destination, oldWeight, routingTable.distance(neighbour, destination)))
+            return DenseRoutingTable.NO_HOP;
+        return router;
+    }
+
+    private boolean isTight(final int router, final int destination, final int weight, final int neighbourDistance) {
+        final int distance = routingTable.distance(router, destination);
+        return distance != NO_CONNECTION && neighbourDistance != NO_CONNECTION && weight != NO_CONNECTION &&
+                distance == weight + neighbourDistance;
+    }
+
+    /**
+     * Propagates the improvement a shorter link brings to the router, a plain Dijkstra from it.
+     */
+    private boolean shorten(final int destination, final int router, final int neighbour, final int weight) {
+        final int neighbourDistance = routingTable.distance(neighbour, destination);
+        final int distance = routingTable.distance(router, destination);
+        if (neighbourDistance == NO_CONNECTION || (distance != NO_CONNECTION && distance <= neighbourDistance + weight))
+            return false;
+
+        heap.clear();
+        routingTable.setRoute(router, destination, neighbourDistance + weight, neighbour);
+        heap.offer(router, neighbourDistance + weight);
+        while (!heap.isEmpty()) {
+            final int current = heap.poll();
+            final int currentDistance = routingTable.distance(current, destination);
+            for (int arc = graph.start(current); arc < graph.end(current); arc++) {
+                final int next = graph.target(arc);
+                if (routingTable.isRemoved(next) || routingTable.isLinkDown(arc))
+                    continue;
+                final int possibleShortestPath = currentDistance + routingTable.linkWeight(arc);
+                final int nextDistance = routingTable.distance(next, destination);
+                if (nextDistance != NO_CONNECTION && nextDistance <= possibleShortestPath)
+                    continue;
+                routingTable.setRoute(next, destination, possibleShortestPath, current);
+                heap.offer(next, possibleShortestPath);
+            }
+        }
+        return true;
+    }
+
+    private boolean lengthen(final int destination, final int router, final int neighbour) {
+        if (router == DenseRoutingTable.NO_HOP && neighbour == DenseRoutingTable.NO_HOP)
+            return false;
+
+        beginDestination();
+        if (router != DenseRoutingTable.NO_HOP)
+            heap.offer(router, routingTable.distance(router, destination));
+        if (neighbour != DenseRoutingTable.NO_HOP)
+            heap.offer(neighbour, routingTable.distance(neighbour, destination));
+        return repairAffected(destination);
+    }
+
+    private void beginDestination() {
+        heap.clear();
+        affectedCount = 0;
+        epoch++;
+    }
+
+    /**
+     * Takes the queued routers in order of their old distance and collects those without a shortest path left,
+     * then settles them again from the routers around them.
+     */
+    private boolean repairAffected(final int destination) {
+        while (!heap.isEmpty()) {
+            final int router = heap.poll();
+            if (examinedIn[router] == epoch)
+                continue;
+            examinedIn[router] = epoch;
+            if (keepsShortestPath(router, destination))
+                continue;
+
+            affectedIn[router] = epoch;
+            affected[affectedCount++] = router;
+            final int distance = routingTable.distance(router, destination);
+            for (int arc = graph.start(router); arc < graph.end(router); arc++) {
+                final int previous = graph.target(arc);
+                if (previous != destination && examinedIn[previous] != epoch && !routingTable.isRemoved(previous) &&
+                        isTight(previous, destination, routingTable.linkWeight(arc), distance))
+                    heap.offer(previous, routingTable.distance(previous, destination));
+            }
+        }
+        if (affectedCount == 0)
+            return false;
+
+        for (int i = 0; i < affectedCount; i++) {
+            final int router = affected[i];
+            int distance = NO_CONNECTION;
+            int nextHop = DenseRoutingTable.NO_HOP;
+            for (int arc = graph.start(router); arc < graph.end(router); arc++) {
+                final int neighbour = graph.target(arc);
+                final int neighbourDistance = routingTable.distance(neighbour, destination);
+                if (affectedIn[neighbour] == epoch || routingTable.isRemoved(neighbour) || routingTable.isLinkDown(arc) ||
+                        neighbourDistance == NO_CONNECTION)
+                    continue;
+                final int possibleShortestPath = neighbourDistance + routingTable.linkWeight(arc);
+                if (distance != NO_CONNECTION && distance <= possibleShortestPath)
+                    continue;
+                distance = possibleShortestPath;
+                nextHop = neighbour;
+            }
+            routingTable.setRoute(router, destination, distance, nextHop);
+            if (distance != NO_CONNECTION)
+                heap.offer(router, distance);
+        }
+
+        while (!heap.isEmpty()) {
+            final int router = heap.poll();
+            final int distance = routingTable.distance(router, destination);
+            for (int arc = graph.start(router); arc < graph.end(router); arc++) {
+                final int next = graph.target(arc);
+                if (affectedIn[next] != epoch || routingTable.isRemoved(next) || routingTable.isLinkDown(arc))
+                    continue;
+                final int possibleShortestPath = distance + routingTable.linkWeight(arc);
+                final int nextDistance = routingTable.distance(next, destination);
+                if (nextDistance != NO_CONNECTION && nextDistance <= possibleShortestPath)
+                    continue;
+                routingTable.setRoute(next, destination, possibleShortestPath, router);
+                heap.offer(next, possibleShortestPath);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the router still has a shortest path over a router that is not affected, its next hop moves there if the
+     * current one no longer is.
+     */
+    private boolean keepsShortestPath(final int router, final int destination) {
+        final int distance = routingTable.distance(router, destination);
+        final int currentNextHop = routingTable.nextHop(router, destination);
+        int alternative = DenseRoutingTable.NO_HOP;
+
+        for (int arc = graph.start(router); arc < graph.end(router); arc++) {
+            final int neighbour = graph.target(arc);
+            if (affectedIn[neighbour] == epoch || routingTable.isRemoved(neighbour) ||
+                    !isTight(router, destination, routingTable.linkWeight(arc), routingTable.distance(neighbour, destination)))
+                continue;
+            if (neighbour == currentNextHop)
+                return true;
+            if (alternative == DenseRoutingTable.NO_HOP)
+                alternative = neighbour;
+        }
+
+        if (alternative == DenseRoutingTable.NO_HOP)
+            return false;
+        routingTable.setRoute(router, destination, distance, alternative);
+        return true;
+    }
+}
@@ -0,0 +1,123 @@
+package ups.papersoda.netter.domain.routing;
+
+import ups.papersoda.netter.domain.CsrGraph;
+import ups.papersoda.netter.domain.DenseRoutingTable;
+import ups.papersoda.netter.domain.RouterIndex;
+
+import java.util.BitSet;
+
+import static ups.papersoda.netter.domain.IRoutingTable.NO_CONNECTION;
+
+/**
+ * Distance-vector convergence that only relaxes dirty (router, destination) pairs, every known route starts dirty.
+ * A router whose route to a destination improved pushes it to its links and dirties the routes it improved in turn.
+ */
+public class WorklistConvergence {
+    private final DenseRoutingTable routingTable;
+    private final int size;
+    private final BitSet[] dirtyDestinations;
+    private final int[] worklist;
+    private final boolean[] queued;
+    private int head;
+    private int queuedCount;
+
+
+    public WorklistConvergence(final DenseRoutingTable routingTable) {
+        this.routingTable = routingTable;
+        this.size = routingTable.size();
+        this.dirtyDestinations = new BitSet[size];
+        this.worklist = new int[size];
+        this.queued = new boolean[size];
+
+        for (int router = 0; router < size; router++) {
+            dirtyDestinations[router] = new BitSet(size);
+            for (int destination = 0; destination < size; destination++)
+                if (routingTable.distance(router, destination) != NO_CONNECTION)
+                    markDirty(router, destination);
+        }
+    }
+
+
+    public void markDirty(final int router, final int destination) {
+        if (routingTable.isRemoved(router))
+            return;
+        dirtyDestinations[router].set(destination);
+        enqueue(router);
+    }
+
+    public void markDirty(final long routerId) {
+        final int router = routingTable.getRouterIndex().indexOf(routerId);
+        if (router == RouterIndex.NO_INDEX || routingTable.isRemoved(router))
+            throw new IllegalArgumentException("convergence: unknown router " + routerId);
+        dirtyDestinations[router].set(0, size);
+        enqueue(router);
+    }
+
+    /**
+     * Relaxes until the worklist drains.
+     * @return number of routes that were improved
+     */
+    public int converge() {
+        int improvedRoutes = 0;
+
+        while (queuedCount > 0) {
+            final int router = dequeue();
+            final BitSet destinations = dirtyDestinations[router];
+
+            for (int destination = destinations.nextSetBit(0); destination >= 0; destination = destinations.nextSetBit(destination + 1)) {
+                destinations.clear(destination);
+                if (!routingTable.isRemoved(destination))
+                    improvedRoutes += advertise(router, destination);
+            }
+        }
+
+        routingTable.markConverged();
+        return improvedRoutes;
+    }
+
+    private int advertise(final int router, final int destination) {
+        final int distance = routingTable.distance(router, destination);
+        if (distance == NO_CONNECTION)
+            return 0;
+
+        final CsrGraph graph = routingTable.getGraph();
+        int improvedRoutes = 0;
+
+        for (int arc = graph.start(router); arc < graph.end(router); arc++) {
+            final int neighbour = graph.target(arc);
+            if (routingTable.isRemoved(neighbour) || routingTable.isLinkDown(arc))
+                continue;
+
+            final int possibleShortestPath = distance + routingTable.linkWeight(arc);
+            final int currentShortestPath = routingTable.distance(neighbour, destination);
+            if (currentShortestPath != NO_CONNECTION && currentShortestPath <= possibleShortestPath)
+                continue;
+
+            routingTable.setRoute(neighbour, destination, possibleShortestPath, router);
+            markDirty(neighbour, destination);
+            improvedRoutes++;
+        }
+
+        return improvedRoutes;
+    }
+
+    private void enqueue(final int router) {
+        if (queued[router])
+            return;
+        queued[router] = true;
+        worklist[(head + queuedCount) % size] = router;
+        queuedCount++;
+    }
+
+    private int dequeue() {
+        final int router = worklist[head];
+        head = (head + 1) % size;
+        queuedCount--;
+        queued[router] = false;
+        return router;
+    }
+
+    public boolean isConverged() {
+        return queuedCount == 0;
+    }
+}
@@ -0,0 +1,144 @@
+package ups.papersoda.netter.domain.transmission;
+
+import ups.papersoda.netter.domain.Connection;
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.Router;
+
+import java.util.Arrays;
+
+/**
+ * Binary heap of packet arrival events over parallel primitive arrays. An event with a link is a packet held back
+ * by the sender until it can be queued on that link, the router is then the one the link leads to.
+ * Events at the same time come out in scheduling order; slots are recycled, so a warm queue schedules without allocating.
+ */
+public class EventQueue {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NO_SLOT = -1;
+
+    private long[] times = new long[INITIAL_CAPACITY];
+    private long[] sequences = new long[INITIAL_CAPACITY];
+    private Router[] routers = new Router[INITIAL_CAPACITY];
+    private Packet[] packets = new Packet[INITIAL_CAPACITY];
+    private Connection[] links = new Connection[INITIAL_CAPACITY];
+    private int[] heap = new int[INITIAL_CAPACITY];
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    /**
+     * Slot returned by the last poll, its references are dropped once it can no longer be read
+     */
+    private int polledSlot = NO_SLOT;
+    private int slotCount;
+    private int size;
+    private long nextSequence;
+
+
+    public void schedule(final long time, final Router router, final Packet packet) {
+        schedule(time, router, null, packet);
+    }
+
+    public void schedule(final long time, final Router router, final Connection link, final Packet packet) {
+        clearPolledSlot();
+        final int slot = allocateSlot();
+        times[slot] = time;
+        sequences[slot] = nextSequence++;
+        routers[slot] = router;
+        links[slot] = link;
+        packets[slot] = packet;
+
+        int position = size++;
+        while (position > 0) {
+            final int parent = (position - 1) >>> 1;
+            if (!before(slot, heap[parent]))
+                break;
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = slot;
+    }
+
+    /**
+     * Removes the earliest event, its fields stay readable through the returned slot until the next call to schedule
+     * or poll.
+     */
+    public int poll() {
+        clearPolledSlot();
+        final int slot = heap[0];
+        final int last = heap[--size];
+
+        int position = 0;
+        final int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && before(heap[child + 1], heap[child]))
+                child++;
+            if (!before(heap[child], last))
+                break;
+            heap[position] = heap[child];
+            position = child;
+        }
+        if (size > 0)
+            heap[position] = last;
+
+        freeSlots[freeCount++] = slot;
+        polledSlot = slot;
+        return slot;
+    }
+
+    /**
+     * Free slots keep no references, so delivered packets and their routers are not held on to.
+     */
+    private void clearPolledSlot() {
+        if (polledSlot == NO_SLOT)
+            return;
+        routers[polledSlot] = null;
+        links[polledSlot] = null;
+        packets[polledSlot] = null;
+        polledSlot = NO_SLOT;
+    }
+
+    public long time(final int slot) {
+        return times[slot];
+    }
+    public Router router(final int slot) {
+        return routers[slot];
+    }
+    public Packet packet(final int slot) {
+        return packets[slot];
+    }
+    public Connection link(final int slot) {
+        return links[slot];
+    }
+    public long peekTime() {
+        return times[heap[0]];
+    }
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    public int size() {
+        return size;
+    }
+
+    private boolean before(final int slot, final int other) {
+        return times[slot] < times[other] ||
+                (times[slot] == times[other] && sequences[slot] < sequences[other]);
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0)
+            return freeSlots[--freeCount];
+        if (slotCount == times.length)
+            grow();
+        return slotCount++;
+    }
+
+    private void grow() {
+        final int capacity = times.length * 2;
+        times = Arrays.copyOf(times, capacity);
+        sequences = Arrays.copyOf(sequences, capacity);
+        routers = Arrays.copyOf(routers, capacity);
+        packets = Arrays.copyOf(packets, capacity);
+        links = Arrays.copyOf(links, capacity);
+        heap = Arrays.copyOf(heap, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+}
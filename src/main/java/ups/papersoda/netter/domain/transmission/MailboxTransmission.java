@@ -0,0 +1,136 @@
+package ups.papersoda.netter.domain.transmission;
+
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.Router;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongFunction;
+
+/**
+ * Forwards packets concurrently: routers are spread over shards, each shard owns a mailbox that is drained by at most
+ * one worker at a time, and a forwarded packet is posted to the mailbox of the shard owning its next router.
+ * Routers only read their routing table here, so the table has to be converged beforehand.
+ */
+public class MailboxTransmission {
+    private static final int BATCH_SIZE = 256;
+
+    private final Executor executor;
+    private final Shard[] shards;
+    private final int hopLimit;
+    private final AtomicLong packetsInFlight = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private CountDownLatch finished;
+
+
+    public MailboxTransmission(final Executor executor, final int shardCount, final int hopLimit) {
+        if (shardCount < 1)
+            throw new IllegalArgumentException("transmission: shard count has to be positive");
+
+        this.executor = executor;
+        this.hopLimit = hopLimit;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++)
+            shards[i] = new Shard();
+    }
+
+
+    public void transmit(final List<? extends Packet> packets, final LongFunction<Router> routers) {
+        finished = new CountDownLatch(1);
+        packetsInFlight.set(packets.size());
+        if (packets.isEmpty())
+            return;
+
+        for (Packet packet : packets) {
+            final Router source = routers.apply(packet.getSourceId());
+            if (source == null) {
+                packet.setState(Packet.State.DROPPED);
+                packetFinished();
+                continue;
+            }
+            post(source, packet);
+        }
+
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("transmission: interrupted while packets were in flight", e);
+        }
+
+        if (failure.get() != null)
+            throw new IllegalStateException("transmission: router failed while forwarding", failure.get());
+    }
+
+    private void post(final Router router, final Packet packet) {
+        final Shard shard = shards[Math.floorMod(Long.hashCode(router.id()), shards.length)];
+        shard.mailbox.offer(new Envelope(router, packet));
+        shard.schedule();
+    }
+
+    private void forward(final Envelope envelope) {
+        final Packet packet = envelope.packet;
+        try {
+            final var nextNeighbour = envelope.router.routePacket(packet);
+            if (nextNeighbour == null) {
+                packetFinished();
+                return;
+            }
+            if (packet.getPathLength() > hopLimit) {
+                envelope.router.dropPacket(packet);
+                packetFinished();
+                return;
+            }
+            post(nextNeighbour.getKey(), packet);
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+            packet.setState(Packet.State.DROPPED);
+            packetFinished();
+        }
+    }
+
+    private void packetFinished() {
+        if (packetsInFlight.decrementAndGet() == 0)
+            finished.countDown();
+    }
+
+    private static class Envelope {
+        private final Router router;
+        private final Packet packet;
+
+
+        Envelope(Router router, Packet packet) {
+            this.router = router;
+            this.packet = packet;
+        }
+    }
+
+    private class Shard implements Runnable {
+        private final Queue<Envelope> mailbox = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true))
+                executor.execute(this);
+        }
+
+        @Override
+        public void run() {
+            Envelope envelope;
+            int drained = 0;
+            while (drained++ < BATCH_SIZE && (envelope = mailbox.poll()) != null)
+                forward(envelope);
+
+            scheduled.set(false);
+            if (!mailbox.isEmpty())
+                schedule();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ups.papersoda.netter.domain.transmission;
+
+import ups.papersoda.netter.domain.Connection;
+import ups.papersoda.netter.domain.LinkQueue;
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.Router;
+
+import java.util.function.LongFunction;
+
+/**
+ * Discrete-event simulation of packet forwarding: a packet arriving at a router is one event, and crossing a link
+ * schedules its arrival at the next router after the link latency. Packets are injected at their sent time and get
+ * the simulated time they reached their destination as delivery time.
+ * A link with a {@link LinkQueue} first has to send the packet at its bandwidth after the packets queued ahead of it,
+ * and may drop it or make the sender hold it back.
+ */
+public class PacketSimulation {
+    private final LongFunction<Router> routers;
+    private final int hopLimit;
+    private final EventQueue events = new EventQueue();
+    private long currentTime;
+    private long processedEvents;
+
+
+    public PacketSimulation(final LongFunction<Router> routers, final int hopLimit) {
+        this.routers = routers;
+        this.hopLimit = hopLimit;
+    }
+
+
+    public void inject(final Packet packet) {
+        if (packet.getSentTime() < currentTime)
+            throw new IllegalArgumentException("simulation: packet " + packet.getId() + " was sent before current time " + currentTime);
+
+        final Router source = routers.apply(packet.getSourceId());
+        if (source == null) {
+            packet.setState(Packet.State.DROPPED);
+            return;
+        }
+        events.schedule(packet.getSentTime(), source, packet);
+    }
+
+    public void inject(final Iterable<? extends Packet> packets) {
+        packets.forEach(this::inject);
+    }
+
+    /**
+     * Processes events until none are left.
+     * @return simulated time of the last event
+     */
+    public long run() {
+        return runUntil(Long.MAX_VALUE);
+    }
+
+    /**
+     * Processes events scheduled up to and including the given time, later events stay queued.
+     * @return simulated time of the last processed event
+     */
+    public long runUntil(final long time) {
+        while (!events.isEmpty() && events.peekTime() <= time) {
+            final int event = events.poll();
+            currentTime = events.time(event);
+            final Connection heldOn = events.link(event);
+            if (heldOn == null)
+                arrive(events.router(event), events.packet(event));
+            else
+                retry(events.router(event), heldOn, events.packet(event));
+            processedEvents++;
+        }
+        return currentTime;
+    }
+
+    private void arrive(final Router router, final Packet packet) {
+        // set ahead of routing, so packet listeners see it
+        if (router.id() == packet.getDestId())
+            packet.setDeliveryTime(currentTime);
+        final var nextNeighbour = router.selectNeighbour(packet);
+        if (nextNeighbour == null)
+            return;
+        if (packet.getPathLength() > hopLimit) {
+            router.dropPacket(packet);
+            return;
+        }
+
+        final Connection link = nextNeighbour.getValue();
+        final long sent = link.getQueue() == null
+                ? currentTime
+                : link.getQueue().offer(currentTime, packet.getPayloadSize());
+        if (sent == LinkQueue.DROPPED) {
+            router.dropPacket(packet);
+            return;
+        }
+        // a held packet is never dropped, it counts as forwarded once it is held
+        router.forwardPacket(packet, link);
+        send(nextNeighbour.getKey(), link, packet, sent);
+    }
+
+    private void retry(final Router next, final Connection link, final Packet packet) {
+        send(next, link, packet, link.getQueue().offer(currentTime, packet.getPayloadSize()));
+    }
+
+    /**
+     * Schedules the packet's arrival at the next router once the link sent it, or holds it back until the link's
+     * queue frees a place.
+     */
+    private void send(final Router next, final Connection link, final Packet packet, final long sent) {
+        if (sent == LinkQueue.BLOCKED)
+            events.schedule(link.getQueue().nextDeparture(), next, link, packet);
+        else
+            events.schedule(sent + link.getLatency(), next, packet);
+    }
+
+    public long getCurrentTime() {
+        return currentTime;
+    }
+    public long getProcessedEvents() {
+        return processedEvents;
+    }
+    public int getPendingEvents() {
+        return events.size();
+    }
+}
@@ -0,0 +1,71 @@
+package ups.papersoda.netter.domain.transmission;
+
+import ups.papersoda.netter.domain.Packet;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * Subscriber keeping at most bufferSize packets requested but not yet forwarded.
+ * Demand is topped up in half-buffer batches as packets get forwarded, so a fast publisher is held back by forwarding.
+ */
+public class PacketSubscriber implements Flow.Subscriber<Packet> {
+    private final Consumer<Packet> transmitPacket;
+    private final int bufferSize;
+    private final int refillThreshold;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private Flow.Subscription subscription;
+    private int forwardedSinceRequest;
+
+
+    public PacketSubscriber(final Consumer<Packet> transmitPacket, final int bufferSize) {
+        if (bufferSize < 1)
+            throw new IllegalArgumentException("packet subscriber: buffer size has to be positive");
+
+        this.transmitPacket = transmitPacket;
+        this.bufferSize = bufferSize;
+        this.refillThreshold = Math.max(1, bufferSize / 2);
+    }
+
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(bufferSize);
+    }
+
+    @Override
+    public void onNext(final Packet packet) {
+        try {
+            transmitPacket.accept(packet);
+        } catch (RuntimeException e) {
+            subscription.cancel();
+            completion.completeExceptionally(e);
+            return;
+        }
+
+        if (++forwardedSinceRequest < refillThreshold)
+            return;
+        subscription.request(forwardedSinceRequest);
+        forwardedSinceRequest = 0;
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        completion.complete(null);
+    }
+
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+}
@@ -0,0 +1,197 @@
+package ups.papersoda.netter.generator;
+
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+
+import java.util.*;
+
+/**
+ * Generates router graphs in standard shapes. Router ids are 1..size, every link is added in both directions with the
+ * same weight so packets can be forwarded either way. The same seed gives the same graph.
+ */
+public class TopologyGenerator {
+    private final long seed;
+    private final WeightDistribution weights;
+
+
+    public TopologyGenerator(final long seed, final WeightDistribution weights) {
+        this.seed = seed;
+        this.weights = weights;
+    }
+
+    public TopologyGenerator(final long seed) {
+        this(seed, WeightDistribution.constant(1));
+    }
+
+
+    public List<RouterDTO> ring(final int size) {
+        final Links links = new Links(requireSize(size, 3));
+        for (int router = 0; router < size; router++)
+            links.link(router, (router + 1) % size);
+        return links.routerDTOs();
+    }
+
+    public List<RouterDTO> grid(final int width, final int height) {
+        return lattice(width, height, false);
+    }
+
+    /**
+     * Grid whose rows and columns wrap around.
+     */
+    public List<RouterDTO> torus(final int width, final int height) {
+        return lattice(width, height, true);
+    }
+
+    private List<RouterDTO> lattice(final int width, final int height, final boolean wrap) {
+        if (width < 1 || height < 1)
+            throw new IllegalArgumentException("topology generator: invalid lattice " + width + "x" + height);
+
+        final Links links = new Links(width * height);
+        for (int y = 0; y < height; y++)
+            for (int x = 0; x < width; x++) {
+                final int router = y * width + x;
+                if (x + 1 < width || (wrap && width > 2))
+                    links.link(router, y * width + (x + 1) % width);
+                if (y + 1 < height || (wrap && height > 2))
+                    links.link(router, ((y + 1) % height) * width + x);
+            }
+        return links.routerDTOs();
+    }
+
+    /**
+     * G(n, p) random graph, every pair of routers is linked with the given probability. Skips geometrically over the
+     * pairs that are not linked, so the cost follows the number of links rather than the number of pairs.
+     */
+    public List<RouterDTO> erdosRenyi(final int size, final double probability) {
+        if (!(probability >= 0 && probability <= 1))
+            throw new IllegalArgumentException("topology generator: invalid link probability " + probability);
+
+        final Links links = new Links(requireSize(size, 1));
+        if (probability == 0)
+            return links.routerDTOs();
+
+        final double logMiss = Math.log(1 - probability);
+        final long pairs = (long)size * (size - 1) / 2;
+        int router = 1;
+        long neighbour = -1;
+        while (router < size) {
+            final double skip = probability == 1 ? 0 : Math.floor(Math.log(1 - links.random.nextDouble()) / logMiss);
+            // a skip past every pair left ends the graph, capped so it can't overflow
+            neighbour += 1 + (long)Math.min(skip, pairs);
+            while (neighbour >= router && router < size) {
+                neighbour -= router;
+                router++;
+            }
+            if (router < size)
+                links.link(router, (int)neighbour);
+        }
+        return links.routerDTOs();
+    }
+
+    /**
+     * Scale-free graph by preferential attachment: starts from a clique of linksPerRouter + 1 routers and links every
+     * further router to linksPerRouter distinct routers picked with probability proportional to their degree.
+     */
+    public List<RouterDTO> barabasiAlbert(final int size, final int linksPerRouter) {
+        if (linksPerRouter < 1)
+            throw new IllegalArgumentException("topology generator: links per router must be positive, was " + linksPerRouter);
+
+        final Links links = new Links(requireSize(size, linksPerRouter + 1));
+        // every router appears once per link end, a uniform pick from it is a pick proportional to degree
+        final int[] linkEnds = new int[linksPerRouter * (linksPerRouter + 1) + 2 * linksPerRouter * (size - linksPerRouter - 1)];
+        int linkEndCount = 0;
+
+        for (int router = 0; router <= linksPerRouter; router++)
+            for (int neighbour = 0; neighbour < router; neighbour++) {
+                links.link(router, neighbour);
+                linkEnds[linkEndCount++] = router;
+                linkEnds[linkEndCount++] = neighbour;
+            }
+
+        final int[] picked = new int[linksPerRouter];
+        for (int router = linksPerRouter + 1; router < size; router++) {
+            final int candidates = linkEndCount;
+            for (int i = 0; i < linksPerRouter; i++) {
+                int neighbour;
+                do {
+                    neighbour = linkEnds[links.random.nextInt(candidates)];
+                } while (contains(picked, i, neighbour));
+                picked[i] = neighbour;
+            }
+            for (final int neighbour : picked) {
+                links.link(router, neighbour);
+                linkEnds[linkEndCount++] = router;
+                linkEnds[linkEndCount++] = neighbour;
+            }
+        }
+        return links.routerDTOs();
+    }
+
+    /**
+     * Three-tier k-ary fat-tree of switches: (k/2)^2 core routers, then k pods of k/2 aggregation and k/2 edge routers.
+     * Every edge router links to every aggregation router of its pod, aggregation router i of a pod links to core
+     * routers i * k/2 .. (i + 1) * k/2 - 1. Has 5k^2/4 routers, ids by tier: core, then aggregation and edge per pod.
+     */
+    public List<RouterDTO> fatTree(final int k) {
+        if (k < 2 || k % 2 != 0)
+            throw new IllegalArgumentException("topology generator: fat-tree arity must be even and at least 2, was " + k);
+
+        final int half = k / 2;
+        final int coreCount = half * half;
+        final Links links = new Links(coreCount + k * k);
+        for (int pod = 0; pod < k; pod++) {
+            final int aggregation = coreCount + pod * k;
+            final int edge = aggregation + half;
+            for (int i = 0; i < half; i++) {
+                for (int j = 0; j < half; j++) {
+                    links.link(aggregation + i, i * half + j);
+                    links.link(edge + j, aggregation + i);
+                }
+            }
+        }
+        return links.routerDTOs();
+    }
+
+    private static int requireSize(final int size, final int minimum) {
+        if (size < minimum)
+            throw new IllegalArgumentException("topology generator: needs at least " + minimum + " routers, was " + size);
+        return size;
+    }
+
+    private static boolean contains(final int[] values, final int count, final int value) {
+        for (int i = 0; i < count; i++)
+            if (values[i] == value)
+                return true;
+        return false;
+    }
+
+    /**
+     * Connections of a graph under construction, by router index.
+     */
+    private class Links {
+        private final Random random = new Random(seed);
+        private final List<List<ConnectionDTO>> connections;
+        private long nextConnectionId = 1;
+
+
+        Links(final int size) {
+            connections = new ArrayList<>(size);
+            for (int router = 0; router < size; router++)
+                connections.add(new ArrayList<>());
+        }
+
+
+        void link(final int router, final int neighbour) {
+            final int weight = weights.next(random);
+            connections.get(router).add(new ConnectionDTO(nextConnectionId++, weight, router + 1L, neighbour + 1L));
+            connections.get(neighbour).add(new ConnectionDTO(nextConnectionId++, weight, neighbour + 1L, router + 1L));
+        }
+
+        List<RouterDTO> routerDTOs() {
+            final List<RouterDTO> routerDTOs = new ArrayList<>(connections.size());
+            for (int router = 0; router < connections.size(); router++)
+                routerDTOs.add(new RouterDTO(router + 1L, connections.get(router)));
+            return routerDTOs;
+        }
+    }
+}
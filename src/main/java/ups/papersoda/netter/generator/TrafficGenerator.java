@@ -0,0 +1,126 @@
+package ups.papersoda.netter.generator;
+
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.dto.RouterDTO;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Packet workloads over a generated topology. Packets are created lazily as the sequential stream is consumed, so a
+ * workload can be far larger than memory, and ids run from 0 in stream order. The same seed gives the same packets.
+ */
+public class TrafficGenerator {
+    private final long seed;
+
+
+    public TrafficGenerator(final long seed) {
+        this.seed = seed;
+    }
+
+
+    /**
+     * Source and destination picked uniformly among distinct routers.
+     */
+    public Stream<Packet> uniform(final List<? extends RouterDTO> routers, final long count) {
+        final long[] ids = routerIds(routers);
+        final Random random = new Random(seed);
+        return packets(count, id -> {
+            final int source = random.nextInt(ids.length);
+            return new Packet(id, ids[source], ids[otherThan(source, random.nextInt(ids.length - 1))]);
+        });
+    }
+
+    /**
+     * Uniform sources, a hotFraction share of packets goes to one of hotspotCount routers picked at random up front,
+     * the rest to a uniform destination.
+     */
+    public Stream<Packet> hotspot(final List<? extends RouterDTO> routers, final long count, final int hotspotCount, final double hotFraction) {
+        final long[] ids = routerIds(routers);
+        if (hotspotCount < 1 || hotspotCount > ids.length)
+            throw new IllegalArgumentException("traffic generator: invalid hotspot count " + hotspotCount);
+        if (!(hotFraction >= 0 && hotFraction <= 1))
+            throw new IllegalArgumentException("traffic generator: invalid hot fraction " + hotFraction);
+
+        final Random random = new Random(seed);
+        final int[] hotspots = random.ints(0, ids.length).distinct().limit(hotspotCount).toArray();
+        return packets(count, id -> {
+            int destination;
+            int source;
+            do {
+                destination = random.nextDouble() < hotFraction
+                        ? hotspots[random.nextInt(hotspotCount)]
+                        : random.nextInt(ids.length);
+                source = random.nextInt(ids.length);
+            } while (source == destination);
+            return new Packet(id, ids[source], ids[destination]);
+        });
+    }
+
+    /**
+     * Gravity model: traffic between two routers is proportional to the product of their masses, a router's mass
+     * being the summed weight of its connections. Routers without connections send and receive nothing.
+     */
+    public Stream<Packet> gravity(final List<? extends RouterDTO> routers, final long count) {
+        final long[] ids = routerIds(routers);
+        final double[] cumulativeMass = new double[ids.length];
+        double mass = 0;
+        int routersWithMass = 0;
+        for (int i = 0; i < ids.length; i++) {
+            final double routerMass = routers.get(i).getConnections().stream()
+                    .mapToDouble(connection -> connection.getWeight().doubleValue())
+                    .sum();
+            if (routerMass > 0)
+                routersWithMass++;
+            mass += routerMass;
+            cumulativeMass[i] = mass;
+        }
+        if (routersWithMass < 2)
+            throw new IllegalArgumentException("traffic generator: gravity model needs at least 2 connected routers");
+
+        final double totalMass = mass;
+        final Random random = new Random(seed);
+        return packets(count, id -> {
+            final int source = pick(cumulativeMass, random.nextDouble() * totalMass);
+            int destination;
+            do {
+                destination = pick(cumulativeMass, random.nextDouble() * totalMass);
+            } while (destination == source);
+            return new Packet(id, ids[source], ids[destination]);
+        });
+    }
+
+    private static Stream<Packet> packets(final long count, final LongFunction<Packet> factory) {
+        if (count < 0)
+            throw new IllegalArgumentException("traffic generator: invalid packet count " + count);
+        return LongStream.range(0, count).sequential().mapToObj(factory);
+    }
+
+    private static long[] routerIds(final List<? extends RouterDTO> routers) {
+        if (routers.size() < 2)
+            throw new IllegalArgumentException("traffic generator: needs at least 2 routers, was " + routers.size());
+        return routers.stream().mapToLong(RouterDTO::id).toArray();
+    }
+
+    /**
+     * Index among all routers but the excluded one, from an index in [0, size - 1).
+     */
+    private static int otherThan(final int excluded, final int index) {
+        return index < excluded ? index : index + 1;
+    }
+
+    /**
+     * First router whose cumulative mass exceeds the point, routers without mass are never picked.
+     */
+    private static int pick(final double[] cumulativeMass, final double point) {
+        final int i = Arrays.binarySearch(cumulativeMass, point);
+        int router = i < 0 ? -i - 1 : i;
+        while (cumulativeMass[router] <= point)
+            router++;
+        return router;
+    }
+}
@@ -0,0 +1,36 @@
+package ups.papersoda.netter.generator;
+
+import java.util.Random;
+
+/**
+ * Link weights of generated topologies, always at least 1.
+ */
+public interface WeightDistribution {
+    int next(Random random);
+
+
+    static WeightDistribution constant(final int weight) {
+        if (weight < 1)
+            throw new IllegalArgumentException("weight distribution: weight must be positive, was " + weight);
+        return random -> weight;
+    }
+
+    /**
+     * Uniform over [min, max].
+     */
+    static WeightDistribution uniform(final int min, final int max) {
+        if (min < 1 || max < min)
+            throw new IllegalArgumentException("weight distribution: invalid range [" + min + ", " + max + "]");
+        final int range = max - min + 1;
+        return random -> min + random.nextInt(range);
+    }
+
+    /**
+     * Exponential with the given mean, rounded up so most links are cheap and a few are expensive.
+     */
+    static WeightDistribution exponential(final double mean) {
+        if (!(mean >= 1))
+            throw new IllegalArgumentException("weight distribution: mean must be at least 1, was " + mean);
+        return random -> (int)Math.min(Integer.MAX_VALUE / 2, Math.ceil(-mean * Math.log(1 - random.nextDouble())));
+    }
+}
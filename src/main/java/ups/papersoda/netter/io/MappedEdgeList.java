@@ -0,0 +1,228 @@
+package ups.papersoda.netter.io;
+
+import ups.papersoda.netter.domain.mapper.ConnectionConsumer;
+import ups.papersoda.netter.domain.mapper.ConnectionSource;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Edge list read straight from a memory-mapped file, connections are parsed into primitives and handed to the consumer
+ * one by one, so nothing but the mapping is held while a mapper builds its routers.
+ * <p>
+ * CSV lines are {@code from,to,weight[,id]}; blank lines and lines starting with anything but a number (headers,
+ * comments) are skipped, connections without an id are numbered from 1 in file order.
+ * Binary files are a {@code NETE} magic and a version followed by big-endian {@code id, from, to, weight} records.
+ */
+public class MappedEdgeList implements ConnectionSource, Closeable {
+    static final int MAGIC = 0x4E455445;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 28;
+    private static final long REGION_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] regions;
+    private final boolean binary;
+
+
+    private MappedEdgeList(final Path file, final boolean binary) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.binary = binary;
+        try {
+            this.regions = mapRegions(file);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static MappedEdgeList csv(final Path file) throws IOException {
+        return new MappedEdgeList(file, false);
+    }
+
+    public static MappedEdgeList binary(final Path file) throws IOException {
+        return new MappedEdgeList(file, true);
+    }
+
+
+    /**
+     * Writes connections in the binary format, e.g. to convert a CSV edge list once and map it cheaply afterwards.
+     */
+    public static void writeBinary(final ConnectionSource connections, final Path file) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            final IOException[] failure = new IOException[1];
+            connections.forEachConnection((id, fromRouter, toRouter, weight) -> {
+                if (failure[0] != null)
+                    return;
+                try {
+                    output.writeLong(id);
+                    output.writeLong(fromRouter);
+                    output.writeLong(toRouter);
+                    output.writeInt(weight);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null)
+                throw failure[0];
+        }
+    }
+
+    @Override
+    public void forEachConnection(final ConnectionConsumer consumer) {
+        if (binary) {
+            for (MappedByteBuffer region : regions)
+                readRecords(region, consumer);
+            return;
+        }
+
+        final CsvParser parser = new CsvParser(consumer);
+        for (MappedByteBuffer region : regions)
+            parser.parse(region);
+        parser.finish();
+    }
+
+    private MappedByteBuffer[] mapRegions(final Path file) throws IOException {
+        final long offset = binary ? HEADER_SIZE : 0;
+        final long size = channel.size() - offset;
+        if (binary)
+            checkHeader(file, size);
+
+        final long regionSize = binary ? REGION_SIZE / RECORD_SIZE * RECORD_SIZE : REGION_SIZE;
+        final MappedByteBuffer[] mapped = new MappedByteBuffer[(int)((size + regionSize - 1) / regionSize)];
+        for (int region = 0; region < mapped.length; region++) {
+            final long regionOffset = region * regionSize;
+            mapped[region] = channel.map(
+                    FileChannel.MapMode.READ_ONLY, offset + regionOffset, Math.min(regionSize, size - regionOffset));
+        }
+        return mapped;
+    }
+
+    private void checkHeader(final Path file, final long size) throws IOException {
+        if (size < 0 || size % RECORD_SIZE != 0)
+            throw new IllegalArgumentException("edge list: " + file + " is not a whole number of records");
+
+        final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt(0) != MAGIC)
+            throw new IllegalArgumentException("edge list: " + file + " is not a binary edge list");
+        if (header.getInt(4) != VERSION)
+            throw new IllegalArgumentException("edge list: unsupported version " + header.getInt(4));
+    }
+
+    private static void readRecords(final MappedByteBuffer region, final ConnectionConsumer consumer) {
+        for (int record = 0; record < region.limit(); record += RECORD_SIZE)
+            consumer.accept(
+                    region.getLong(record),
+                    region.getLong(record + 8),
+                    region.getLong(record + 16),
+                    region.getInt(record + 24)
+            );
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Byte-at-a-time parser, its state carries over between regions so lines may cross region boundaries.
+     */
+    private static class CsvParser {
+        private static final int MAX_FIELDS = 4;
+
+        private final ConnectionConsumer consumer;
+        private final long[] fields = new long[MAX_FIELDS];
+        private int fieldCount;
+        private long value;
+        private boolean negative;
+        private boolean digits;
+        /**
+         * Whitespace followed the digits, only a separator may come next
+         */
+        private boolean fieldEnded;
+        private boolean skipLine;
+        private long line = 1;
+        private long connections;
+
+
+        CsvParser(final ConnectionConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+
+        void parse(final MappedByteBuffer region) {
+            for (int i = 0; i < region.limit(); i++) {
+                final byte b = region.get(i);
+                if (b == '\n') {
+                    endLine();
+                    continue;
+                }
+                if (skipLine)
+                    continue;
+
+                if (b >= '0' && b <= '9' && !fieldEnded) {
+                    final int digit = b - '0';
+                    if (value > (Long.MAX_VALUE - digit) / 10)
+                        throw new IllegalArgumentException("edge list: number overflows a long on line " + line);
+                    value = value * 10 + digit;
+                    digits = true;
+                } else if (b == ',') {
+                    endField();
+                } else if (b == '-' && !digits && !negative) {
+                    negative = true;
+                } else if (b == '\r' || b == ' ' || b == '\t') {
+                    fieldEnded = digits;
+                } else if (fieldCount == 0 && !digits && !negative) {
+                    skipLine = true;
+                } else {
+                    throw malformedLine();
+                }
+            }
+        }
+
+        void finish() {
+            endLine();
+        }
+
+        private void endField() {
+            if (!digits || fieldCount == MAX_FIELDS)
+                throw malformedLine();
+            fields[fieldCount++] = negative ? -value : value;
+            value = 0;
+            negative = false;
+            digits = false;
+            fieldEnded = false;
+        }
+
+        private void endLine() {
+            if (!skipLine && (fieldCount > 0 || digits || negative)) {
+                endField();
+                if (fieldCount < 3 || fields[2] < Integer.MIN_VALUE || fields[2] > Integer.MAX_VALUE)
+                    throw malformedLine();
+                connections++;
+                consumer.accept(fieldCount == 4 ? fields[3] : connections, fields[0], fields[1], (int)fields[2]);
+            }
+            fieldCount = 0;
+            value = 0;
+            negative = false;
+            digits = false;
+            fieldEnded = false;
+            skipLine = false;
+            line++;
+        }
+
+        private IllegalArgumentException malformedLine() {
+            return new IllegalArgumentException("edge list: malformed line " + line);
+        }
+    }
+}
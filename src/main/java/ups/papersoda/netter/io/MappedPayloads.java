@@ -0,0 +1,62 @@
+package ups.papersoda.netter.io;
+
+import ups.papersoda.netter.domain.Packet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only memory-mapped payload file, packets get slices of the mapping instead of copies of its bytes.
+ * The file is mapped in regions since a single mapping can't exceed 2GB, a slice crossing regions gets its own mapping.
+ */
+public class MappedPayloads implements Closeable {
+    private static final long REGION_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] regions;
+    private final long size;
+
+
+    public MappedPayloads(final Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.regions = new MappedByteBuffer[(int)((size + REGION_SIZE - 1) / REGION_SIZE)];
+        for (int region = 0; region < regions.length; region++) {
+            final long offset = region * REGION_SIZE;
+            regions[region] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(REGION_SIZE, size - offset));
+        }
+    }
+
+
+    public ByteBuffer slice(final long offset, final int length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > size)
+            throw new IndexOutOfBoundsException("mapped payloads: " + length + " bytes at " + offset + " outside file of " + size + " bytes");
+
+        final int region = (int)(offset / REGION_SIZE);
+        final int regionOffset = (int)(offset % REGION_SIZE);
+        if (region < regions.length && regionOffset + length <= regions[region].capacity()) {
+            final ByteBuffer view = regions[region].duplicate();
+            view.limit(regionOffset + length).position(regionOffset);
+            return view.slice();
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+    public void attach(final Packet packet, final long offset, final int length) throws IOException {
+        packet.setPayload(slice(offset, length));
+    }
+
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
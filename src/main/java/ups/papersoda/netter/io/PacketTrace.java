@@ -0,0 +1,91 @@
+package ups.papersoda.netter.io;
+
+import ups.papersoda.netter.domain.Packet;
+
+import java.util.Arrays;
+
+/**
+ * One packet read back from a trace. {@link PacketTraceReader} refills the same instance for every packet, copy what
+ * has to outlive the callback.
+ */
+public class PacketTrace {
+    private long packetId;
+    private long sourceId;
+    private long destId;
+    private Packet.State state;
+    private long sentTime;
+    private long deliveryTime;
+    private int payloadSize;
+    private long[] path = new long[8];
+    private int pathLength;
+
+
+    void reset(long packetId, long sourceId, long destId, Packet.State state, long sentTime, long deliveryTime, int payloadSize) {
+        this.packetId = packetId;
+        this.sourceId = sourceId;
+        this.destId = destId;
+        this.state = state;
+        this.sentTime = sentTime;
+        this.deliveryTime = deliveryTime;
+        this.payloadSize = payloadSize;
+        this.pathLength = 0;
+    }
+
+    void addToPath(final long router) {
+        if (pathLength == path.length)
+            path = Arrays.copyOf(path, pathLength * 2);
+        path[pathLength++] = router;
+    }
+
+
+    public long getPacketId() {
+        return packetId;
+    }
+    public long getSourceId() {
+        return sourceId;
+    }
+    public long getDestId() {
+        return destId;
+    }
+    public Packet.State getState() {
+        return state;
+    }
+    public long getSentTime() {
+        return sentTime;
+    }
+    /**
+     * {@link Packet#NOT_DELIVERED} unless the packet was delivered in simulated time.
+     */
+    public long getDeliveryTime() {
+        return deliveryTime;
+    }
+    public int getPayloadSize() {
+        return payloadSize;
+    }
+    public int getPathLength() {
+        return pathLength;
+    }
+    public long getPathRouter(final int hop) {
+        if (hop < 0 || hop >= pathLength)
+            throw new IndexOutOfBoundsException("packet trace: hop " + hop + " out of path length " + pathLength);
+        return path[hop];
+    }
+    public long[] copyPath() {
+        return Arrays.copyOf(path, pathLength);
+    }
+
+
+    @Override
+    public String toString() {
+        return "PacketTrace{" +
+                "packetId=" + packetId +
+                ", sourceId=" + sourceId +
+                ", destId=" + destId +
+                ", state=" + state +
+                ", sentTime=" + sentTime +
+                ", deliveryTime=" + deliveryTime +
+                ", payloadSize=" + payloadSize +
+                ", path=" + Arrays.toString(copyPath()) +
+                '}';
+    }
+}
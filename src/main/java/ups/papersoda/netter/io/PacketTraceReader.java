@@ -0,0 +1,164 @@
+package ups.papersoda.netter.io;
+
+import ups.papersoda.netter.domain.Packet;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Reads back a trace written by {@link PacketTraceWriter}, streaming through the file with one buffer.
+ */
+public class PacketTraceReader implements AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final Packet.State[] STATES = Packet.State.values();
+
+    private final Path file;
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private boolean endOfFile;
+    private int blockRemaining;
+    private long previousPacketId;
+    private long previousSourceId;
+    private long previousSentTime;
+
+
+    public PacketTraceReader(final Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        buffer.flip();
+        try {
+            fill();
+            if (buffer.remaining() < PacketTraceWriter.HEADER_SIZE || buffer.getInt() != PacketTraceWriter.MAGIC)
+                throw new IllegalArgumentException("packet trace: " + file + " is not a packet trace");
+            final int version = buffer.getInt();
+            if (version != PacketTraceWriter.VERSION)
+                throw new IllegalArgumentException("packet trace: unsupported version " + version);
+        } catch (RuntimeException | IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Reads the next packet into the trace.
+     * @return false once every packet was read
+     */
+    public boolean next(final PacketTrace trace) throws IOException {
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                fill();
+                if (!buffer.hasRemaining() && blockRemaining == 0)
+                    return false;
+            }
+
+            if (blockRemaining == 0) {
+                if (buffer.remaining() < PacketTraceWriter.BLOCK_HEADER_SIZE) {
+                    if (endOfFile)
+                        throw new IllegalArgumentException("packet trace: " + file + " is truncated");
+                    fill();
+                    continue;
+                }
+                startBlock(buffer.getInt());
+                continue;
+            }
+
+            buffer.mark();
+            final int start = buffer.position();
+            try {
+                read(trace);
+                blockRemaining -= buffer.position() - start;
+                if (blockRemaining < 0)
+                    throw new IllegalArgumentException("packet trace: " + file + " has a record crossing its block");
+                return true;
+            } catch (BufferUnderflowException e) {
+                buffer.reset();
+                if (endOfFile)
+                    throw new IllegalArgumentException("packet trace: " + file + " is truncated");
+                fill();
+            }
+        }
+    }
+
+    /**
+     * Calls back with every remaining packet, always with the same trace instance.
+     * @return number of packets read
+     */
+    public long forEach(final Consumer<? super PacketTrace> action) throws IOException {
+        final PacketTrace trace = new PacketTrace();
+        long count = 0;
+        while (next(trace)) {
+            action.accept(trace);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Deltas start over in every block.
+     */
+    private void startBlock(final int length) {
+        if (length <= 0)
+            throw new IllegalArgumentException("packet trace: " + file + " has a block of invalid length " + length);
+        blockRemaining = length;
+        previousPacketId = 0;
+        previousSourceId = 0;
+        previousSentTime = 0;
+    }
+
+    private void read(final PacketTrace trace) {
+        final int flags = buffer.get();
+        final long packetId = previousPacketId + Varints.getSigned(buffer);
+        final long sourceId = previousSourceId + Varints.getSigned(buffer);
+        final long destId = sourceId + Varints.getSigned(buffer);
+        final long sentTime = previousSentTime + Varints.getSigned(buffer);
+        final long deliveryTime = (flags & PacketTraceWriter.DELIVERY_TIME_FLAG) != 0
+                ? sentTime + Varints.getSigned(buffer)
+                : Packet.NOT_DELIVERED;
+        final int payloadSize = (int)Varints.getUnsigned(buffer);
+        final int pathLength = (int)Varints.getUnsigned(buffer);
+
+        trace.reset(packetId, sourceId, destId, STATES[flags & PacketTraceWriter.STATE_MASK], sentTime, deliveryTime, payloadSize);
+        long hop = sourceId;
+        for (int i = 0; i < pathLength; i++) {
+            hop += Varints.getSigned(buffer);
+            trace.addToPath(hop);
+        }
+
+        previousPacketId = packetId;
+        previousSourceId = sourceId;
+        previousSentTime = sentTime;
+    }
+
+    /**
+     * Keeps the unread bytes and reads more after them, growing the buffer when a record does not fit it.
+     */
+    private void fill() throws IOException {
+        if (endOfFile)
+            return;
+        if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+            final ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+
+        while (buffer.hasRemaining())
+            if (channel.read(buffer) < 0) {
+                endOfFile = true;
+                break;
+            }
+        buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
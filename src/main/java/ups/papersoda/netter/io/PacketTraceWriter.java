@@ -0,0 +1,283 @@
+package ups.papersoda.netter.io;
+
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.Router;
+import ups.papersoda.netter.domain.listener.PacketListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records every delivered or dropped packet into a compact binary trace, to be read back with
+ * {@link PacketTraceReader}. Every forwarding thread encodes into a preallocated buffer of its own and a background
+ * thread writes full buffers out, so recording costs an encode rather than a write or a contended lock. A thread
+ * whose buffer is full swaps it for a free one; when the disk fell behind by every buffer, the writer failed or was
+ * closed, records are discarded and counted instead of slowing forwarding down or failing it.
+ * The writer keeps the threads' buffers itself rather than in thread locals, so closing it lets go of all of them and
+ * a thread that ended hands its buffer back once another thread starts recording.
+ * <p>
+ * Layout: {@code NETT} magic and version, then blocks of records, one per filled buffer: the byte length of the block
+ * and its records. A record holds the state (bit 2 set when a delivery time follows), zigzag varint deltas of packet
+ * id, source id and sent time to the previous record of the block, of destination id to the source, of delivery time
+ * to sent time, then varints of payload size and path length and zigzag deltas of every hop to the previous one, the
+ * first to the source. Ids and times that move in small steps take a byte or two.
+ */
+public class PacketTraceWriter implements PacketListener, AutoCloseable {
+    static final int MAGIC = 0x4E455454;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 8;
+    static final int BLOCK_HEADER_SIZE = 4;
+    static final int DELIVERY_TIME_FLAG = 0x4;
+    static final int STATE_MASK = 0x3;
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    private static final int DEFAULT_BUFFER_COUNT = 4;
+    private static final int RECORD_FIELDS = 8;
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final int bufferSize;
+    private final int bufferCount;
+    private final Queue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+    private final BlockingQueue<ByteBuffer> fullBuffers = new LinkedBlockingQueue<>();
+    private final Map<Thread, Encoder> encoders = new ConcurrentHashMap<>();
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder discardedRecords = new LongAdder();
+    private final Thread writer;
+    private volatile boolean closed;
+
+
+    public PacketTraceWriter(final Path file) throws IOException {
+        this(file, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT);
+    }
+
+    /**
+     * @param bufferCount spare buffers shared by the recording threads, on top of the one each of them starts with
+     */
+    public PacketTraceWriter(final Path file, final int bufferSize, final int bufferCount) throws IOException {
+        if (bufferSize < BLOCK_HEADER_SIZE + RECORD_FIELDS * Varints.MAX_LENGTH)
+            throw new IllegalArgumentException("packet trace: buffer size " + bufferSize + " is too small");
+        if (bufferCount < 1)
+            throw new IllegalArgumentException("packet trace: buffer count has to be positive");
+
+        this.bufferSize = bufferSize;
+        this.bufferCount = bufferCount;
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+            while (header.hasRemaining())
+                channel.write(header);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        for (int i = 0; i < bufferCount; i++)
+            freeBuffers.add(ByteBuffer.allocateDirect(bufferSize));
+
+        this.writer = new Thread(this::writeBuffers, "packet-trace-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+
+    @Override
+    public void delivered(final Router router, final Packet packet) {
+        record(packet);
+    }
+
+    @Override
+    public void dropped(final Router router, final Packet packet) {
+        record(packet);
+    }
+
+    public void record(final Packet packet) {
+        if (closed || failure.get() != null) {
+            discardedRecords.increment();
+            return;
+        }
+        final Thread thread = Thread.currentThread();
+        Encoder encoder = encoders.get(thread);
+        if (encoder == null) {
+            retireEndedThreads();
+            encoder = encoders.computeIfAbsent(thread, newThread -> new Encoder(encoderBuffer()));
+        }
+        encoder.record(packet);
+    }
+
+    /**
+     * Hands what threads that ended buffered to the writer, their buffers join the free ones.
+     */
+    private void retireEndedThreads() {
+        encoders.forEach((thread, encoder) -> {
+            if (!thread.isAlive() && encoders.remove(thread, encoder))
+                encoder.flush();
+        });
+    }
+
+    /**
+     * Takes a buffer freed by a retired thread over allocating one, the spares stay at the configured count.
+     */
+    private ByteBuffer encoderBuffer() {
+        final ByteBuffer spare = freeBuffers.size() > bufferCount ? freeBuffers.poll() : null;
+        return spare != null ? spare : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    private void writeBuffers() {
+        while (true) {
+            final ByteBuffer full;
+            try {
+                full = fullBuffers.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (full == END)
+                return;
+
+            if (failure.get() == null)
+                try {
+                    while (full.hasRemaining())
+                        channel.write(full);
+                } catch (IOException e) {
+                    failure.set(e);
+                }
+            full.clear();
+            freeBuffers.add(full);
+        }
+    }
+
+    /**
+     * Writes out what every thread buffered and closes the file, records arriving later are discarded.
+     * The buffers are let go of, so a closed writer holds no memory for the threads that recorded into it.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+        }
+
+        try {
+            encoders.values().forEach(Encoder::flush);
+            fullBuffers.add(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("packet trace: interrupted while writing out", e);
+        } finally {
+            channel.close();
+            encoders.clear();
+            freeBuffers.clear();
+            fullBuffers.clear();
+        }
+
+        if (failure.get() != null)
+            throw failure.get();
+    }
+
+    public long getRecords() {
+        return records.sum();
+    }
+    /**
+     * Records given up because no buffer was free, the path did not fit a buffer, or the writer failed or was closed.
+     */
+    public long getDiscardedRecords() {
+        return discardedRecords.sum();
+    }
+
+    /**
+     * Buffer and delta state of one recording thread. Its lock is only contended while the writer closes or retires
+     * the thread, records arriving under it after that are discarded.
+     */
+    private final class Encoder {
+        private ByteBuffer buffer;
+        private long previousPacketId;
+        private long previousSourceId;
+        private long previousSentTime;
+
+
+        Encoder(final ByteBuffer buffer) {
+            startBlock(buffer);
+        }
+
+
+        synchronized void record(final Packet packet) {
+            final long longestRecord = (long)(RECORD_FIELDS + packet.getPathLength()) * Varints.MAX_LENGTH;
+            if (closed || buffer == null || longestRecord > bufferSize - BLOCK_HEADER_SIZE ||
+                    (buffer.remaining() < longestRecord && !swapBuffer())) {
+                discardedRecords.increment();
+                return;
+            }
+
+            final boolean hasDeliveryTime = packet.getDeliveryTime() != Packet.NOT_DELIVERED;
+            buffer.put((byte)(packet.getState().ordinal() | (hasDeliveryTime ? DELIVERY_TIME_FLAG : 0)));
+            Varints.putSigned(buffer, packet.getId() - previousPacketId);
+            Varints.putSigned(buffer, packet.getSourceId() - previousSourceId);
+            Varints.putSigned(buffer, packet.getDestId() - packet.getSourceId());
+            Varints.putSigned(buffer, packet.getSentTime() - previousSentTime);
+            if (hasDeliveryTime)
+                Varints.putSigned(buffer, packet.getDeliveryTime() - packet.getSentTime());
+            Varints.putUnsigned(buffer, packet.getPayloadSize());
+            Varints.putUnsigned(buffer, packet.getPathLength());
+            long previousHop = packet.getSourceId();
+            for (int hop = 0; hop < packet.getPathLength(); hop++) {
+                final long router = packet.getPathRouter(hop);
+                Varints.putSigned(buffer, router - previousHop);
+                previousHop = router;
+            }
+
+            previousPacketId = packet.getId();
+            previousSourceId = packet.getSourceId();
+            previousSentTime = packet.getSentTime();
+            records.increment();
+        }
+
+        /**
+         * Hands the filled buffer to the writer for a free one, keeps it when none is free.
+         */
+        private boolean swapBuffer() {
+            final ByteBuffer free = freeBuffers.poll();
+            if (free == null)
+                return false;
+            handOff();
+            startBlock(free);
+            return true;
+        }
+
+        private void startBlock(final ByteBuffer next) {
+            buffer = next;
+            buffer.position(BLOCK_HEADER_SIZE);
+            previousPacketId = 0;
+            previousSourceId = 0;
+            previousSentTime = 0;
+        }
+
+        private void handOff() {
+            if (buffer.position() > BLOCK_HEADER_SIZE) {
+                buffer.putInt(0, buffer.position() - BLOCK_HEADER_SIZE).flip();
+                fullBuffers.add(buffer);
+            } else {
+                buffer.clear();
+                freeBuffers.add(buffer);
+            }
+            buffer = null;
+        }
+
+        synchronized void flush() {
+            if (buffer != null)
+                handOff();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package ups.papersoda.netter.io;
+
+import ups.papersoda.netter.domain.CsrGraph;
+import ups.papersoda.netter.domain.DenseRoutingTable;
+import ups.papersoda.netter.domain.Router;
+import ups.papersoda.netter.domain.RouterIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Binary snapshot of a {@link DenseRoutingTable}, so a restart reads the routes back in instead of converging again.
+ * The file is mapped in regions for reading and writing, the routes themselves are copied into the table's arrays.
+ * <p>
+ * Layout: {@code NETR} magic, version, router count, converged flag and topology fingerprint, then router ids in index
+ * order, one removed flag per router padded to 8 bytes, per router its distance row followed by its next hop row, and
+ * last the count of links whose weight bond updates changed, followed by their router indexes and weight.
+ * The fingerprint covers router ids, links, weights as built and directions but not their order, so the snapshot loads
+ * against the same topology however its routers are iterated, and refuses any other topology.
+ */
+public class RoutingTableSnapshot {
+    static final int MAGIC = 0x4E455452;
+    static final int VERSION = 2;
+    private static final int HEADER_SIZE = 24;
+    private static final long REGION_SIZE = 1L << 30;
+    private static final int CHANGED_LINK_BYTES = 3 * Integer.BYTES;
+
+
+    private RoutingTableSnapshot() {
+    }
+
+
+    public static void save(final DenseRoutingTable routingTable, final Path file) throws IOException {
+        final int size = routingTable.size();
+        final long rowsOffset = rowsOffset(size);
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, rowsOffset);
+            header.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(size)
+                    .putInt(routingTable.isConverged() ? 1 : 0)
+                    .putLong(fingerprint(routingTable));
+            for (int i = 0; i < size; i++)
+                header.putLong(routingTable.getRouterIndex().idOf(i));
+            for (int i = 0; i < size; i++)
+                header.put((byte)(routingTable.isRemoved(i) ? 1 : 0));
+
+            final int rowsPerRegion = rowsPerRegion(size);
+            for (int first = 0; first < size; first += rowsPerRegion) {
+                final int rows = Math.min(rowsPerRegion, size - first);
+                final IntBuffer region = channel.map(FileChannel.MapMode.READ_WRITE,
+                        rowsOffset + rowBytes(size) * first, rowBytes(size) * rows).asIntBuffer();
+                for (int row = first; row < first + rows; row++)
+                    routingTable.writeRow(row, region);
+            }
+
+            final int changedLinks = changedLinks(routingTable, null);
+            final IntBuffer links = channel.map(FileChannel.MapMode.READ_WRITE,
+                    rowsEnd(size), Integer.BYTES + (long)changedLinks * CHANGED_LINK_BYTES).asIntBuffer();
+            links.put(changedLinks);
+            changedLinks(routingTable, links);
+        }
+    }
+
+    /**
+     * Counts the links whose weight differs from the one built, once per pair of routers, and writes them when given
+     * a target.
+     */
+    private static int changedLinks(final DenseRoutingTable routingTable, final IntBuffer target) {
+        final CsrGraph graph = routingTable.getGraph();
+        int changedLinks = 0;
+        for (int from = 0; from < routingTable.size(); from++)
+            for (int arc = graph.start(from); arc < graph.end(from); arc++) {
+                final int to = graph.target(arc);
+                if (to < from || routingTable.linkWeight(arc) == graph.weight(arc))
+                    continue;
+                if (target != null)
+                    target.put(from).put(to).put(routingTable.linkWeight(arc));
+                changedLinks++;
+            }
+        return changedLinks;
+    }
+
+    /**
+     * Restores the table saved for the given routers, its converged state included.
+     */
+    public static DenseRoutingTable load(final Path file, final Collection<? extends Router> routers) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE)
+                throw new IllegalArgumentException("routing table snapshot: " + file + " is not a routing table snapshot");
+
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC)
+                throw new IllegalArgumentException("routing table snapshot: " + file + " is not a routing table snapshot");
+            final int version = header.getInt();
+            if (version != VERSION)
+                throw new IllegalArgumentException("routing table snapshot: unsupported version " + version);
+            final int size = header.getInt();
+            final boolean converged = header.getInt() == 1;
+            final long fingerprint = header.getLong();
+
+            final long rowsOffset = rowsOffset(size);
+            if (size < 1 || channel.size() < rowsEnd(size) + Integer.BYTES)
+                throw new IllegalArgumentException("routing table snapshot: " + file + " is truncated");
+            final IntBuffer links = channel.map(FileChannel.MapMode.READ_ONLY, rowsEnd(size), channel.size() - rowsEnd(size)).asIntBuffer();
+            final int changedLinks = links.get();
+            if (changedLinks < 0 || channel.size() != rowsEnd(size) + Integer.BYTES + (long)changedLinks * CHANGED_LINK_BYTES)
+                throw new IllegalArgumentException("routing table snapshot: " + file + " is truncated");
+
+            final MappedByteBuffer routerSection = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, rowsOffset - HEADER_SIZE);
+            final long[] ids = new long[size];
+            routerSection.asLongBuffer().get(ids);
+
+            final DenseRoutingTable routingTable = DenseRoutingTable.createRoutingTable(routers, new RouterIndex(ids));
+            if (!coversRouters(routingTable, routers) || fingerprint(routingTable) != fingerprint)
+                throw new IllegalArgumentException("routing table snapshot: " + file + " was saved for a different topology");
+
+            final int rowsPerRegion = rowsPerRegion(size);
+            for (int first = 0; first < size; first += rowsPerRegion) {
+                final int rows = Math.min(rowsPerRegion, size - first);
+                final IntBuffer region = channel.map(FileChannel.MapMode.READ_ONLY,
+                        rowsOffset + rowBytes(size) * first, rowBytes(size) * rows).asIntBuffer();
+                for (int row = first; row < first + rows; row++)
+                    routingTable.readRow(row, region);
+            }
+            for (int i = 0; i < changedLinks; i++) {
+                final int from = links.get();
+                final int to = links.get();
+                final int weight = links.get();
+                if (from < 0 || from >= size || to < 0 || to >= size)
+                    throw new IllegalArgumentException("routing table snapshot: " + file + " links unknown routers " + from + " and " + to);
+                routingTable.setLinkWeight(from, to, weight);
+            }
+
+            for (int i = 0; i < size; i++)
+                if (routerSection.get(size * Long.BYTES + i) == 1)
+                    routingTable.removeRouter(ids[i]);
+            if (converged)
+                routingTable.markConverged();
+            return routingTable;
+        }
+    }
+
+    /**
+     * Routing table factory for {@link ups.papersoda.netter.domain.Network} restoring from the snapshot.
+     */
+    public static Function<Collection<? extends Router>, DenseRoutingTable> factory(final Path file) {
+        return routers -> {
+            try {
+                return load(file, routers);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static boolean coversRouters(final DenseRoutingTable routingTable, final Collection<? extends Router> routers) {
+        if (routers.size() != routingTable.size())
+            return false;
+        for (Router router : routers)
+            if (!routingTable.getRouterIndex().contains(router.id()))
+                return false;
+        return true;
+    }
+
+    static long fingerprint(final DenseRoutingTable routingTable) {
+        final CsrGraph graph = routingTable.getGraph();
+        long fingerprint = routingTable.size();
+        for (int i = 0; i < routingTable.size(); i++) {
+            final long id = routingTable.getRouterIndex().idOf(i);
+            fingerprint += mix(id);
+
+            for (int arc = graph.start(i); arc < graph.end(i); arc++) {
+                final long neighbour = routingTable.getRouterIndex().idOf(graph.target(arc));
+                final long link = graph.weight(arc) * 2L + (graph.isOutgoing(arc) ? 1 : 0);
+                fingerprint += mix(id * 31 + mix(neighbour * 31 + mix(link)));
+            }
+        }
+        return fingerprint;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+
+    private static long rowsOffset(final int size) {
+        return HEADER_SIZE + (long)size * Long.BYTES + ((size + 7) & ~7);
+    }
+
+    private static long rowsEnd(final int size) {
+        return rowsOffset(size) + rowBytes(size) * size;
+    }
+
+    private static long rowBytes(final int size) {
+        return 2L * size * Integer.BYTES;
+    }
+
+    private static int rowsPerRegion(final int size) {
+        return (int)Math.max(1, REGION_SIZE / rowBytes(size));
+    }
+}
@@ -0,0 +1,48 @@
+package ups.papersoda.netter.io;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * LEB128 varints, 7 bits per byte low bits first, with zigzag for signed values so small deltas of either sign stay
+ * short.
+ */
+final class Varints {
+    static final int MAX_LENGTH = 10;
+
+
+    private Varints() {
+    }
+
+
+    static void putUnsigned(final ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte)value);
+    }
+
+    static void putSigned(final ByteBuffer buffer, final long value) {
+        putUnsigned(buffer, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * @throws BufferUnderflowException when the buffer ends inside the varint
+     */
+    static long getUnsigned(final ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            final byte b = buffer.get();
+            value |= (long)(b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IllegalArgumentException("varint: longer than " + MAX_LENGTH + " bytes");
+    }
+
+    static long getSigned(final ByteBuffer buffer) {
+        final long value = getUnsigned(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
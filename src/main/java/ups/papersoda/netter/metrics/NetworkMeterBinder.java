@@ -0,0 +1,192 @@
+package ups.papersoda.netter.metrics;
+
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import ups.papersoda.netter.domain.Connection;
+import ups.papersoda.netter.domain.LinkQueue;
+import ups.papersoda.netter.domain.Network;
+import ups.papersoda.netter.domain.Router;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Exposes a network's counters through Micrometer. Meters read the counters when published, so binding adds nothing
+ * to the forwarding path. By default routers and links are published as network-wide totals, meters per router and
+ * per link are opt-in since a generated topology would put millions of them into the registry.
+ */
+public class NetworkMeterBinder implements MeterBinder {
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 1 };
+
+    private final Network network;
+    private final Tags tags;
+    private final boolean perElement;
+
+
+    /**
+     * @param perElement whether to publish meters per router and per link on top of the totals
+     */
+    public NetworkMeterBinder(final Network network, final Iterable<Tag> tags, final boolean perElement) {
+        this.network = network;
+        this.tags = Tags.of(tags);
+        this.perElement = perElement;
+    }
+
+    public NetworkMeterBinder(final Network network, final Iterable<Tag> tags) {
+        this(network, tags, false);
+    }
+
+    public NetworkMeterBinder(final Network network) {
+        this(network, Tags.empty());
+    }
+
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        bindTotals(registry);
+        if (perElement)
+            for (Router router : network.getRouters()) {
+                final Tags routerTags = tags.and("router", Long.toString(router.id()));
+                routerPackets(registry, router, routerTags.and("outcome", "forwarded"), Router::getForwardedPackets);
+                routerPackets(registry, router, routerTags.and("outcome", "delivered"), Router::getDeliveredPackets);
+                routerPackets(registry, router, routerTags.and("outcome", "dropped"), Router::getDroppedPackets);
+
+                router.getNeighbourLinks().forEach(link -> bindConnection(registry, link.getValue()));
+            }
+
+        final NetworkMetrics metrics = network.getMetrics();
+        bindHistogram(registry, "netter.packet.hops", "hops", metrics.getHopCounts(), 1);
+        bindHistogram(registry, "netter.packet.stretch", null, metrics.getPathStretch(), NetworkMetrics.STRETCH_SCALE);
+
+        FunctionTimer.builder("netter.convergence", metrics,
+                        NetworkMetrics::getConvergenceCount, m -> m.getConvergenceTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                .tags(tags)
+                .description("routing table convergence ahead of transmission")
+                .register(registry);
+        TimeGauge.builder("netter.convergence.last", metrics, TimeUnit.NANOSECONDS,
+                        m -> m.getLastConvergenceTime(TimeUnit.NANOSECONDS))
+                .tags(tags)
+                .register(registry);
+    }
+
+    /**
+     * Sums over every router and link each time they are published.
+     */
+    private void bindTotals(final MeterRegistry registry) {
+        networkPackets(registry, tags.and("outcome", "forwarded"), Router::getForwardedPackets);
+        networkPackets(registry, tags.and("outcome", "delivered"), Router::getDeliveredPackets);
+        networkPackets(registry, tags.and("outcome", "dropped"), Router::getDroppedPackets);
+        FunctionCounter.builder("netter.network.link.packets", network, n -> sumLinks(Connection::getTransferredPackets))
+                .tags(tags)
+                .baseUnit("packets")
+                .register(registry);
+        FunctionCounter.builder("netter.network.link.bytes", network, n -> sumLinks(Connection::getTransferredBytes))
+                .tags(tags)
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("netter.network.queue.packets", network, n -> sumQueues(LinkQueue::getDroppedPackets))
+                .tags(tags.and("outcome", "dropped"))
+                .baseUnit("packets")
+                .register(registry);
+        FunctionCounter.builder("netter.network.queue.packets", network, n -> sumQueues(LinkQueue::getBlockedPackets))
+                .tags(tags.and("outcome", "blocked"))
+                .baseUnit("packets")
+                .register(registry);
+    }
+
+    private void networkPackets(final MeterRegistry registry, final Tags tags, final ToLongFunction<Router> count) {
+        FunctionCounter.builder("netter.network.packets", network, n -> {
+                    long sum = 0;
+                    for (Router router : n.getRouters())
+                        sum += count.applyAsLong(router);
+                    return sum;
+                })
+                .tags(tags)
+                .baseUnit("packets")
+                .register(registry);
+    }
+
+    private long sumLinks(final ToLongFunction<Connection> count) {
+        long sum = 0;
+        for (Router router : network.getRouters())
+            for (var link : router.getNeighbourLinks())
+                sum += count.applyAsLong(link.getValue());
+        return sum;
+    }
+
+    private long sumQueues(final ToLongFunction<LinkQueue> count) {
+        return sumLinks(connection -> connection.getQueue() == null ? 0 : count.applyAsLong(connection.getQueue()));
+    }
+
+    private static void routerPackets(
+            final MeterRegistry registry, final Router router, final Tags tags, final ToDoubleFunction<Router> count
+    ) {
+        FunctionCounter.builder("netter.router.packets", router, count)
+                .tags(tags)
+                .baseUnit("packets")
+                .register(registry);
+    }
+
+    private void bindConnection(final MeterRegistry registry, final Connection connection) {
+        final Tags connectionTags = tags.and(
+                "connection", Long.toString(connection.getId()),
+                "from", Long.toString(connection.getFromRouter()),
+                "to", Long.toString(connection.getToRouter())
+        );
+        FunctionCounter.builder("netter.connection.packets", connection, Connection::getTransferredPackets)
+                .tags(connectionTags)
+                .baseUnit("packets")
+                .register(registry);
+        FunctionCounter.builder("netter.connection.bytes", connection, Connection::getTransferredBytes)
+                .tags(connectionTags)
+                .baseUnit("bytes")
+                .register(registry);
+        if (connection.getQueue() != null)
+            bindQueue(registry, connection.getQueue(), connectionTags);
+    }
+
+    /**
+     * Queues set after binding are not published.
+     */
+    private static void bindQueue(final MeterRegistry registry, final LinkQueue queue, final Tags tags) {
+        Gauge.builder("netter.connection.queue.depth", queue, LinkQueue::getDepth)
+                .tags(tags)
+                .baseUnit("packets")
+                .register(registry);
+        Gauge.builder("netter.connection.queue.depth.max", queue, LinkQueue::getMaxDepth)
+                .tags(tags)
+                .baseUnit("packets")
+                .register(registry);
+        FunctionCounter.builder("netter.connection.queue.packets", queue, LinkQueue::getDroppedPackets)
+                .tags(tags.and("outcome", "dropped"))
+                .baseUnit("packets")
+                .register(registry);
+        FunctionCounter.builder("netter.connection.queue.packets", queue, LinkQueue::getBlockedPackets)
+                .tags(tags.and("outcome", "blocked"))
+                .baseUnit("packets")
+                .register(registry);
+        Gauge.builder("netter.connection.utilisation", queue, LinkQueue::getUtilisation)
+                .tags(tags)
+                .description("share of simulated time the link spent sending")
+                .register(registry);
+    }
+
+    private void bindHistogram(
+            final MeterRegistry registry, final String name, final String baseUnit,
+            final StripedHistogram histogram, final double scale
+    ) {
+        FunctionCounter.builder(name + ".count", histogram, StripedHistogram::getCount)
+                .tags(tags)
+                .register(registry);
+        Gauge.builder(name + ".mean", histogram, h -> h.getMean() / scale)
+                .tags(tags)
+                .baseUnit(baseUnit)
+                .register(registry);
+        for (double quantile : QUANTILES)
+            Gauge.builder(name, histogram, h -> h.valueAtQuantile(quantile) / scale)
+                    .tags(tags.and("quantile", Double.toString(quantile)))
+                    .baseUnit(baseUnit)
+                    .register(registry);
+    }
+}
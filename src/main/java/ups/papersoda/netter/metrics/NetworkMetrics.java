@@ -0,0 +1,80 @@
+package ups.papersoda.netter.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Network wide packet statistics. Per router and per connection counts live on the routers and connections themselves.
+ */
+public class NetworkMetrics {
+    /**
+     * path stretch is recorded in hundredths, 100 being a shortest path
+     */
+    public static final int STRETCH_SCALE = 100;
+    /**
+     * one delivery in this many has its path stretch recorded
+     */
+    public static final int DEFAULT_STRETCH_SAMPLING = 64;
+
+    private final StripedHistogram hopCounts = new StripedHistogram();
+    private final StripedHistogram pathStretch = new StripedHistogram();
+    private final LongAdder convergences = new LongAdder();
+    private final LongAdder convergenceNanos = new LongAdder();
+    private volatile long lastConvergenceNanos;
+    private volatile int stretchSampling = DEFAULT_STRETCH_SAMPLING;
+
+
+    public void recordDelivery(final int hops) {
+        hopCounts.record(hops);
+    }
+
+    /**
+     * Whether the packet's path stretch is to be recorded, picked by its id so every thread agrees without sharing
+     * a counter.
+     */
+    public boolean samplesStretch(final long packetId) {
+        long z = packetId * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        return Long.remainderUnsigned(z ^ (z >>> 31), stretchSampling) == 0;
+    }
+
+    /**
+     * @param pathWeight summed weight of the links the packet took
+     * @param shortestDistance distance between its source and destination by the same weights, not recorded unless
+     *                         positive
+     */
+    public void recordStretch(final long pathWeight, final long shortestDistance) {
+        if (shortestDistance > 0)
+            pathStretch.record(pathWeight * STRETCH_SCALE / shortestDistance);
+    }
+
+    public void recordConvergence(final long nanos) {
+        convergences.increment();
+        convergenceNanos.add(nanos);
+        lastConvergenceNanos = nanos;
+    }
+
+    public StripedHistogram getHopCounts() {
+        return hopCounts;
+    }
+    public StripedHistogram getPathStretch() {
+        return pathStretch;
+    }
+    /**
+     * Records the stretch of one delivery in the given many, 1 to record every delivery.
+     */
+    public void setStretchSampling(final int stretchSampling) {
+        if (stretchSampling < 1)
+            throw new IllegalArgumentException("network metrics: stretch sampling has to be positive");
+        this.stretchSampling = stretchSampling;
+    }
+    public long getConvergenceCount() {
+        return convergences.sum();
+    }
+    public double getConvergenceTime(final TimeUnit unit) {
+        return (double)convergenceNanos.sum() / unit.toNanos(1);
+    }
+    public double getLastConvergenceTime(final TimeUnit unit) {
+        return (double)lastConvergenceNanos / unit.toNanos(1);
+    }
+}
@@ -0,0 +1,96 @@
+package ups.papersoda.netter.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values over log-linear buckets, HdrHistogram style: values below 16 get a bucket each,
+ * above that every power of two is split into 8 buckets, so a bucket is within 12.5% of its values. Every bucket is a
+ * {@link LongAdder}, recording never blocks and threads rarely touch the same cell.
+ */
+public class StripedHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+
+    public StripedHistogram() {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            buckets[i] = new LongAdder();
+    }
+
+
+    public void record(final long value) {
+        if (value < 0)
+            throw new IllegalArgumentException("histogram: negative value " + value);
+        buckets[bucketOf(value)].increment();
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    static int bucketOf(final long value) {
+        if (value < 2 * SUB_BUCKETS)
+            return (int)value;
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValueOf(final int bucket) {
+        if (bucket < 2 * SUB_BUCKETS)
+            return bucket;
+        final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final long lowest = (long)(SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Highest value of the bucket holding the quantile, at most the recorded maximum. Reads while values are recorded
+     * may be off by the values recorded meanwhile.
+     */
+    public long valueAtQuantile(final double quantile) {
+        if (!(quantile >= 0 && quantile <= 1))
+            throw new IllegalArgumentException("histogram: invalid quantile " + quantile);
+
+        final long recorded = count.sum();
+        if (recorded == 0)
+            return 0;
+
+        final long rank = Math.max(1, (long)Math.ceil(quantile * recorded));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += buckets[bucket].sum();
+            if (seen >= rank)
+                return Math.min(highestValueOf(bucket), getMax());
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets)
+            bucket.reset();
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+    public long getTotal() {
+        return total.sum();
+    }
+    public long getMax() {
+        return max.get();
+    }
+    public double getMean() {
+        final long recorded = count.sum();
+        return recorded == 0 ? 0 : (double)total.sum() / recorded;
+    }
+}
@@ -1,7 +1,18 @@
 package ups.papersoda.netter;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
 import org.springframework.boot.test.context.SpringBootTest;
+import ups.papersoda.netter.domain.DenseRoutingTable;
+import ups.papersoda.netter.domain.Network;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
 
 @SpringBootTest
 class NetterApplicationTests {
@@ -10,4 +21,24 @@ class NetterApplicationTests {
     void contextLoads() {
     }
 
+    @Test
+    void tags_network_meters_with_bean_names() {
+        var beans = new StaticListableBeanFactory();
+        beans.addBean("east", network());
+        beans.addBean("west", network());
+        var registry = new SimpleMeterRegistry();
+
+        new NetterApplication().networkMeters(beans).bindTo(registry);
+
+        assertThat(registry.get("netter.network.packets").tags("network", "east", "outcome", "delivered").functionCounter()).isNotNull();
+        assertThat(registry.get("netter.network.packets").tags("network", "west", "outcome", "delivered").functionCounter()).isNotNull();
+    }
+
+    private static Network network() {
+        return new Network(new RouterMapper(), List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 1, 1L, 2L))),
+                new RouterDTO(2L, List.of())
+        ), DenseRoutingTable::createRoutingTable);
+    }
+
 }
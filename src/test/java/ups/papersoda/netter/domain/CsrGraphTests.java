@@ -0,0 +1,99 @@
+package ups.papersoda.netter.domain;
+
+import org.junit.jupiter.api.Test;
+import ups.papersoda.netter.domain.mapper.IndexedRouterMapper;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class CsrGraphTests {
+    @Test
+    public void merges_link_directions_keeping_cheaper_weight() {
+        var routers = new HashMap<Long, Router>() {{
+            put(1L, new Router(1L, new HashMap<>()));
+            put(2L, new Router(2L, new HashMap<>()));
+            put(3L, new Router(3L, new HashMap<>()));
+        }};
+        routers.get(1L).addNeighbour(2L, routers.get(2L), new Connection(5, 2L, 1L));
+        routers.get(2L).addNeighbour(1L, routers.get(1L), new Connection(3, 1L, 2L));
+        routers.get(3L).addNeighbour(1L, routers.get(1L), new Connection(4, 1L, 3L));
+
+        var graph = CsrGraph.of(routers.values());
+        var index = graph.getRouterIndex();
+        var first = index.indexOf(1L);
+
+        assertThat(graph.arcCount()).isEqualTo(4);
+        assertThat(graph.degree(first)).isEqualTo(2);
+        for (int arc = graph.start(first); arc < graph.end(first); arc++) {
+            var neighbour = index.idOf(graph.target(arc));
+            if (neighbour == 2L) {
+                assertThat(graph.weight(arc)).isEqualTo(3);
+                assertThat(graph.isOutgoing(arc)).isTrue();
+                assertThat(graph.neighbourLink(arc)).isSameAs(routers.get(1L).getNeighbour(2L));
+            } else {
+                assertThat(neighbour).isEqualTo(3L);
+                assertThat(graph.weight(arc)).isEqualTo(4);
+                assertThat(graph.isOutgoing(arc)).isFalse();
+                assertThat(graph.neighbourLink(arc)).isNull();
+            }
+        }
+    }
+
+    @Test
+    public void mapped_routers_share_graph_until_neighbours_change() {
+        List<RouterDTO> routerDTOs = List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 7, 1L, 2L))),
+                new RouterDTO(2L, List.of(new ConnectionDTO(2L, 5, 2L, 3L))),
+                new RouterDTO(3L, List.of())
+        );
+        var routers = new IndexedRouterMapper().transformToRouters(routerDTOs);
+        var graph = routers.get(1L).getGraph();
+
+        assertThat(graph).isNotNull();
+        assertThat(CsrGraph.of(routers.values())).isSameAs(graph);
+        assertThat(DenseRoutingTable.createRoutingTable(routers.values()).getGraph()).isSameAs(graph);
+        assertThat(routers.get(2L).getGraphIndex()).isEqualTo(graph.getRouterIndex().indexOf(2L));
+
+        routers.get(3L).addNeighbour(1L, routers.get(1L), new Connection(1, 1L, 3L));
+
+        assertThat(routers.get(3L).getGraph()).isNull();
+        assertThat(CsrGraph.of(routers.values())).isNotSameAs(graph);
+        assertThat(CsrGraph.of(routers.values()).arcCount()).isEqualTo(6);
+    }
+
+    @Test
+    public void rebuilds_graph_after_link_weight_change() {
+        List<RouterDTO> routerDTOs = List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 7, 1L, 2L))),
+                new RouterDTO(2L, List.of())
+        );
+        var routers = new IndexedRouterMapper().transformToRouters(routerDTOs);
+        var graph = routers.get(1L).getGraph();
+
+        routers.get(1L).getNeighbour(2L).getValue().setWeight(3);
+        var rebuilt = CsrGraph.of(routers.values());
+
+        assertThat(graph.hasCurrentWeights()).isFalse();
+        assertThat(rebuilt).isNotSameAs(graph);
+        assertThat(rebuilt.weight(0)).isEqualTo(3);
+        assertThat(routers.get(1L).getGraph()).isSameAs(rebuilt);
+        assertThat(DenseRoutingTable.createRoutingTable(routers.values()).getRouterDistance(1L, 2L)).isEqualTo(3);
+    }
+
+    @Test
+    public void network_shares_graph_with_dense_routing_table() {
+        List<RouterDTO> routerDTOs = List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 7, 1L, 2L))),
+                new RouterDTO(2L, List.of())
+        );
+
+        var network = new Network(new RouterMapper(), routerDTOs, DenseRoutingTable::createRoutingTable);
+
+        assertThat(((DenseRoutingTable)network.getRoutingTable()).getGraph()).isSameAs(network.getGraph());
+    }
+}
@@ -0,0 +1,326 @@
+package ups.papersoda.netter.domain;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.domain.routing.ShortestPathBuilder;
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+import ups.papersoda.netter.generator.TopologyGenerator;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class DenseRoutingTableTests {
+    @Nested
+    class Initialization {
+        @Test
+        public void has_ids_of_routers_as_keys() {
+            List<Router> routers = Arrays.asList(
+                    new Router(1L, Map.of()),
+                    new Router(2L, Map.of())
+            );
+
+            var routingTable = DenseRoutingTable.createRoutingTable(routers);
+
+            assertThat(routingTable.getRouterIds()).containsExactlyInAnyOrder(1L, 2L);
+            assertThat(routingTable.getAssociateRouterMap(1L)).containsExactly(2L);
+        }
+
+        @Test
+        public void router_only_knows_distance_to_other_router_only_if_other_router_is_neighbour() {
+            var routers = new HashMap<Long, Router>() {{
+                put(1L, new Router(1L, new HashMap<>()));
+                put(2L, new Router(2L, new HashMap<>()));
+                put(3L, new Router(3L, new HashMap<>()));
+            }};
+
+            routers.get(1L)
+                    .addNeighbour(2L, routers.get(2L),
+                            new Connection(5, 2L, 1L));
+            routers.get(3L)
+                    .addNeighbour(1L, routers.get(1L),
+                            new Connection(2, 2L, 3L));
+
+            var routingTable = DenseRoutingTable.createRoutingTable(routers.values());
+
+            assertThat(routingTable.getDistanceFromRouterToNeighbour(1L, 2L))
+                    .isEqualTo(5);
+            assertThat(routingTable.getDistanceFromRouterToNeighbour(1L, 3L))
+                    .isEqualTo(2);
+            assertThat(routingTable.getDistanceFromRouterToNeighbour(2L, 3L))
+                    .isEqualTo(RoutingTable.NO_CONNECTION);
+        }
+
+        @Test
+        public void keeps_cheaper_weight_of_link_present_in_both_directions() {
+            var routers = new HashMap<Long, Router>() {{
+                put(1L, new Router(1L, new HashMap<>()));
+                put(2L, new Router(2L, new HashMap<>()));
+            }};
+            routers.get(1L).addNeighbour(2L, routers.get(2L), new Connection(5, 2L, 1L));
+            routers.get(2L).addNeighbour(1L, routers.get(1L), new Connection(3, 1L, 2L));
+
+            var routingTable = DenseRoutingTable.createRoutingTable(routers.values());
+
+            assertThat(routingTable.getDistanceFromRouterToNeighbour(1L, 2L))
+                    .isEqualTo(3);
+            assertThat(routingTable.getDistanceFromRouterToNeighbour(2L, 1L))
+                    .isEqualTo(3);
+        }
+    }
+
+    @Nested
+    class Behavior {
+        @Test
+        public void gets_next_router_hop() {
+            List<RouterDTO> routerDTOs = new ArrayList<>(){{
+                add(new RouterDTO(1L, new ArrayList<>() {{ add(new ConnectionDTO(1L, 7, 1L, 2L)); }}));
+                add(new RouterDTO(2L, new ArrayList<>() {{ add(new ConnectionDTO(2L, 5, 2L, 3L)); }}));
+                add(new RouterDTO(3L, new ArrayList<>()));
+            }};
+            var packet = new Packet(1, 1L, 3L);
+
+            var routers = new RouterMapper().transformToRouters(routerDTOs);
+            var routingTable = DenseRoutingTable.createRoutingTable(routers.values());
+
+            assertThat(routingTable.getNextHop(routers.get(1L), packet)).isEqualTo(2L);
+            assertThat(routingTable.getNextHop(routers.get(3L), new Packet(2, 3L, 1L))).isNull();
+        }
+
+        @Test
+        public void tryUpdateTable_performs_mutual_update_when_update_should_be_performed() {
+            var routers = List.of(
+                    new Router(1L, new HashMap<>()),
+                    new Router(2L, new HashMap<>()),
+                    new Router(3L, new HashMap<>())
+            );
+            routers.get(0).setNeighbours(new HashMap<>(){{
+                put(3L, Pair.of(routers.get(2), new Connection(10, 3L, 1L)));
+                put(2L, Pair.of(routers.get(1), new Connection(2, 2L, 1L)));
+            }});
+            routers.get(1).setNeighbours(new HashMap<>(){{
+                put(3L, Pair.of(routers.get(2), new Connection(3, 3L, 2L)));
+            }});
+
+            var routingTable = DenseRoutingTable.createRoutingTable(routers);
+
+            assertThat(routingTable.tryUpdateTable(routers.get(0))).isTrue();
+            assertThat(routingTable.getNextShortestPathRouter(1L, 3L)).isEqualTo(2L);
+            assertThat(routingTable.getCurrentShortestPathDistance(1L, 3L)).isEqualTo(5);
+            assertThat(routingTable.getCurrentShortestPathDistance(3L, 1L)).isEqualTo(5);
+            assertThat(routingTable.tryUpdateTable(routers.get(0))).isFalse();
+        }
+
+        @Test
+        public void mirrored_route_takes_next_hop_towards_sender() {
+            // [[1]]--1--[[2]]--2--[[3]]--3--[[4]]
+            List<RouterDTO> routerDTOs = List.of(
+                    new RouterDTO(1L, List.of(new ConnectionDTO(1L, 1, 1L, 2L))),
+                    new RouterDTO(2L, List.of(new ConnectionDTO(2L, 2, 2L, 3L))),
+                    new RouterDTO(3L, List.of(new ConnectionDTO(3L, 3, 3L, 4L))),
+                    new RouterDTO(4L, List.of())
+            );
+            var routers = new RouterMapper().transformToRouters(routerDTOs);
+            var routingTable = DenseRoutingTable.createRoutingTable(routers.values());
+
+            routingTable.tryUpdateTable(routers.get(2L));
+            routingTable.tryUpdateTable(routers.get(1L));
+
+            assertThat(routingTable.getNextShortestPathRouter(1L, 4L)).isEqualTo(2L);
+            assertThat(routingTable.getCurrentShortestPathDistance(1L, 4L)).isEqualTo(6);
+            assertThat(routingTable.getNextShortestPathRouter(4L, 1L)).isEqualTo(3L);
+            assertThat(routingTable.getCurrentShortestPathDistance(4L, 1L)).isEqualTo(6);
+            assertThat(routingTable.getNextShortestPathRouter(4L, 2L)).isEqualTo(3L);
+        }
+
+        @Test
+        public void neighbour_bonds_are_mutually_updated() {
+            var routers = new HashMap<Long, Router>() {{
+                put(1L, new Router(1L, new HashMap<>()));
+                put(2L, new Router(2L, new HashMap<>()));
+            }};
+            routers.get(1L)
+                    .addNeighbour(2L, routers.get(2L), new Connection(5, 1L, 2L));
+
+            var routingTable = DenseRoutingTable.createRoutingTable(routers.values());
+            routingTable.updateRouterBond(1L, 2L, 7);
+
+            assertThat(routingTable.getDistanceFromRouterToNeighbour(1L, 2L))
+                    .isEqualTo(7);
+            assertThat(routingTable.getDistanceFromRouterToNeighbour(2L, 1L))
+                    .isEqualTo(7);
+        }
+
+        @Test
+        public void removes_router_from_routing_table() {
+            var routers = new HashMap<Long, Router>() {{
+                put(1L, new Router(1L, new HashMap<>()));
+                put(2L, new Router(2L, new HashMap<>()));
+            }};
+            routers.get(1L).addNeighbour(2L, routers.get(2L), new Connection(5, 2L, 1L));
+
+            var routingTable = DenseRoutingTable.createRoutingTable(routers.values());
+            routingTable.removeRouter(2L);
+
+            assertThat(routingTable.hasRouter(2L))
+                    .isFalse();
+            assertThat(routingTable.getDistanceFromRouterToNeighbour(1L, 2L))
+                    .isEqualTo(RoutingTable.NO_CONNECTION);
+            assertThat(routingTable.getNextShortestPathRouter(1L, 2L))
+                    .isNull();
+            assertThat(routingTable.getNextHop(routers.get(1L), new Packet(1, 1L, 2L)))
+                    .isNull();
+        }
+
+        @Test
+        public void transmits_packet_through_network() {
+            List<RouterDTO> routerDTOs = new ArrayList<>(){{
+                add(new RouterDTO(1L, new ArrayList<>() {{ add(new ConnectionDTO(1L, 7, 1L, 2L)); }}));
+                add(new RouterDTO(2L, new ArrayList<>() {{ add(new ConnectionDTO(2L, 5, 2L, 3L)); }}));
+                add(new RouterDTO(3L, new ArrayList<>()));
+            }};
+            var network = new Network(new RouterMapper(), routerDTOs, DenseRoutingTable::createRoutingTable);
+            var packets = List.of(new Packet(1L, 1L, 3L));
+
+            network.beingPacketTransmission(packets);
+
+            assertThat(packets.get(0).getPath()).isEqualTo(List.of(1L, 2L, 3L));
+            assertThat(network.getRoutingTable().getRouterDistance(1L, 3L)).isEqualTo(12);
+        }
+    }
+
+    @Nested
+    class Forwarding {
+        @Test
+        public void compiled_next_hops_match_link_scan() {
+            var random = new Random(13L);
+            var routerDTOs = new ArrayList<RouterDTO>();
+            long connectionId = 1L;
+            for (long router = 1; router <= 40; router++)
+                routerDTOs.add(new RouterDTO(router, List.of(
+                        new ConnectionDTO(connectionId++, 1 + random.nextInt(9), router, router % 40 + 1),
+                        new ConnectionDTO(connectionId++, 1 + random.nextInt(9), router, 1 + random.nextInt(40)))));
+            var routers = new RouterMapper().transformToRouters(routerDTOs);
+            var routingTable = ShortestPathBuilder.createRoutingTable(routers.values());
+            var index = routingTable.getRouterIndex();
+
+            for (var from : routers.values())
+                for (var to : routers.values()) {
+                    var nextHop = routingTable.nextHopIndex(index.indexOf(from.id()), index.indexOf(to.id()));
+                    assertThat(routingTable.getNextHop(from, new Packet(1L, from.id(), to.id())))
+                            .isEqualTo(nextHop == DenseRoutingTable.NO_HOP ? null : index.idOf(nextHop));
+                }
+        }
+
+        @Test
+        public void recompiles_routes_changed_since_convergence() {
+            // [[1]]--7--[[2]]--5--[[3]]
+            //   \-------15-------/
+            List<RouterDTO> routerDTOs = List.of(
+                    new RouterDTO(1L, List.of(
+                            new ConnectionDTO(1L, 7, 1L, 2L),
+                            new ConnectionDTO(3L, 15, 1L, 3L))),
+                    new RouterDTO(2L, List.of(new ConnectionDTO(2L, 5, 2L, 3L))),
+                    new RouterDTO(3L, List.of())
+            );
+            var routers = new RouterMapper().transformToRouters(routerDTOs);
+            var routingTable = ShortestPathBuilder.createRoutingTable(routers.values());
+            var packet = new Packet(1L, 1L, 3L);
+            assertThat(routingTable.getNextHop(routers.get(1L), packet)).isEqualTo(2L);
+
+            routingTable.updateRouterBond(1L, 3L, 2);
+            routingTable.markConverged();
+
+            assertThat(routingTable.getNextHop(routers.get(1L), packet)).isEqualTo(3L);
+            assertThat(routingTable.getNextNeighbour(routers.get(1L), packet))
+                    .isSameAs(routers.get(1L).getNeighbour(3L));
+        }
+    }
+
+    @Nested
+    class Errors {
+        @Test
+        public void errors_when_created_with_no_routers() {
+            assertThatThrownBy(() -> DenseRoutingTable.createRoutingTable(new ArrayList<>()))
+                    .isExactlyInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("routing table: no routers provided");
+        }
+
+        @Test
+        public void errors_when_router_is_unknown() {
+            var routingTable = DenseRoutingTable.createRoutingTable(List.of(new Router(1L, Map.of())));
+
+            assertThatThrownBy(() -> routingTable.getRouterDistance(4L, 1L))
+                    .isExactlyInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("routing table: unknown router 4");
+        }
+
+        @Test
+        public void errors_when_router_ids_repeat() {
+            assertThatThrownBy(() -> new RouterIndex(new long[]{ 1L, 2L, 1L }))
+                    .isExactlyInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("router index: duplicate router id 1");
+        }
+
+        @Test
+        public void errors_when_matrices_would_outgrow_an_array() {
+            var routers = new ArrayList<Router>();
+            for (long id = 0; id < 46_341; id++)
+                routers.add(new Router(id, Map.of()));
+
+            assertThatThrownBy(() -> DenseRoutingTable.createRoutingTable(routers))
+                    .isExactlyInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("routing table: 46341 routers are too many routers for a dense table");
+        }
+    }
+
+    @Nested
+    class Multipath {
+        // fat-tree k = 4: edge routers 7 and 19 sit in different pods, 4 equal-cost paths edge-aggregation-core-aggregation-edge
+        private final List<RouterDTO> routerDTOs = new TopologyGenerator(1L).fatTree(4);
+
+        @Test
+        public void spreads_flows_over_equal_cost_links() {
+            var network = new Network(new RouterMapper(), routerDTOs, DenseRoutingTable::createRoutingTable);
+            network.convergeRoutingTable();
+            ((DenseRoutingTable)network.getRoutingTable()).setMultipath(true);
+
+            var packets = new ArrayList<Packet>();
+            for (long flow = 0; flow < 400; flow++) {
+                var packet = new Packet(flow, 7L, 19L);
+                packet.setFlowId(flow);
+                packets.add(packet);
+            }
+            network.beingPacketTransmission(packets);
+
+            assertThat(packets).allSatisfy(packet -> {
+                assertThat(packet.getState()).isEqualTo(Packet.State.DELIVERED);
+                assertThat(packet.getPathLength()).isEqualTo(5);
+            });
+            var corePaths = new HashMap<Long, Integer>();
+            packets.forEach(packet -> corePaths.merge(packet.getPathRouter(2), 1, Integer::sum));
+            assertThat(corePaths).hasSize(4);
+            assertThat(corePaths.values()).allSatisfy(count -> assertThat(count).isBetween(60, 140));
+        }
+
+        @Test
+        public void keeps_every_packet_of_a_flow_on_one_path() {
+            var network = new Network(new RouterMapper(), routerDTOs, DenseRoutingTable::createRoutingTable);
+            network.convergeRoutingTable();
+            ((DenseRoutingTable)network.getRoutingTable()).setMultipath(true);
+
+            var packets = new ArrayList<Packet>();
+            for (long id = 0; id < 50; id++) {
+                var packet = new Packet(id, 7L, 19L);
+                packet.setFlowId(42L);
+                packets.add(packet);
+            }
+            network.beingPacketTransmission(packets);
+
+            assertThat(packets).extracting(Packet::getPath).containsOnly(packets.get(0).getPath());
+        }
+    }
+}
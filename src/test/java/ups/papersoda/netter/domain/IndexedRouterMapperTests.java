@@ -0,0 +1,71 @@
+package ups.papersoda.netter.domain;
+
+import org.junit.jupiter.api.Test;
+import ups.papersoda.netter.domain.mapper.IndexedRouterMapper;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class IndexedRouterMapperTests {
+    @Test
+    public void maps_same_routers_and_neighbours_as_router_mapper() {
+        var random = new Random(21L);
+        var routerDTOs = new ArrayList<RouterDTO>();
+        long connectionId = 1L;
+        for (long router = 1; router <= 200; router++) {
+            var connections = new ArrayList<ConnectionDTO>();
+            for (int c = 0; c < 4; c++)
+                connections.add(new ConnectionDTO(connectionId++, 1 + random.nextInt(9), router, 1 + random.nextInt(220)));
+            routerDTOs.add(new RouterDTO(router, connections));
+        }
+
+        var expected = new RouterMapper().transformToRouters(routerDTOs);
+        var routers = new IndexedRouterMapper().transformToRouters(routerDTOs);
+
+        assertThat(routers).containsOnlyKeys(expected.keySet());
+        routers.forEach((id, router) -> {
+            var expectedRouter = expected.get(id);
+            assertThat(router.getNeighbours()).isEqualTo(expectedRouter.getNeighbours());
+            for (long neighbour : router.getNeighbours()) {
+                assertThat(router.getNeighbour(neighbour).getKey()).isSameAs(routers.get(neighbour));
+                assertThat(router.getNeighbour(neighbour).getValue())
+                        .isEqualTo(expectedRouter.getNeighbour(neighbour).getValue());
+                assertThat(router.getNeighbour(neighbour).getValue().getId())
+                        .isEqualTo(expectedRouter.getNeighbour(neighbour).getValue().getId());
+            }
+        });
+    }
+
+    @Test
+    public void skips_unknown_routers_and_keeps_first_connection_to_neighbour() {
+        var routerDTOs = List.of(
+                new RouterDTO(1L, List.of(
+                        new ConnectionDTO(1L, 3, 1L, 2L),
+                        new ConnectionDTO(2L, 8, 1L, 2L),
+                        new ConnectionDTO(3L, 5, 1L, 9L))),
+                new RouterDTO(2L, new ArrayList<>())
+        );
+
+        var routers = new IndexedRouterMapper().transformToRouters(routerDTOs);
+
+        assertThat(routers.get(1L).neighbourCount()).isEqualTo(1);
+        assertThat(routers.get(1L).getNeighbour(2L).getValue()).isEqualTo(new Connection(3, 2L, 1L));
+        assertThat(routers.get(1L).getNeighbour(2L).getValue().getId()).isEqualTo(1L);
+    }
+
+    @Test
+    public void errors_when_router_ids_repeat() {
+        var routerDTOs = List.of(
+                new RouterDTO(1L, new ArrayList<>()),
+                new RouterDTO(1L, new ArrayList<>())
+        );
+
+        assertThatThrownBy(() -> new IndexedRouterMapper().transformToRouters(routerDTOs))
+                .isExactlyInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("router mapper: duplicate router id 1");
+    }
+}
@@ -0,0 +1,69 @@
+package ups.papersoda.netter.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class LinkQueueTests {
+    @Test
+    public void holds_link_for_payload_over_bandwidth_rounded_up() {
+        var queue = LinkQueue.tailDrop(4, 1);
+
+        assertThat(queue.transmissionTime(0)).isEqualTo(1L);
+        assertThat(queue.transmissionTime(8)).isEqualTo(2L);
+        assertThat(queue.transmissionTime(9)).isEqualTo(3L);
+        assertThat(LinkQueue.tailDrop(LinkQueue.UNLIMITED_BANDWIDTH, 1).transmissionTime(9)).isZero();
+    }
+
+    @Test
+    public void frees_places_as_packets_are_sent() {
+        var queue = LinkQueue.tailDrop(1, 2);
+
+        assertThat(queue.offer(0L, 3)).isEqualTo(3L);
+        assertThat(queue.offer(1L, 3)).isEqualTo(6L);
+        assertThat(queue.offer(2L, 3)).isEqualTo(LinkQueue.DROPPED);
+        assertThat(queue.offer(3L, 3)).isEqualTo(9L);
+        assertThat(queue.getDepth()).isEqualTo(2);
+        assertThat(queue.nextDeparture()).isEqualTo(6L);
+
+        assertThat(queue.offer(20L, 3)).isEqualTo(23L);
+        assertThat(queue.getDepth()).isEqualTo(1);
+        assertThat(queue.getBusyTime()).isEqualTo(12L);
+        assertThat(queue.getUtilisation()).isEqualTo(9 / 20.0);
+    }
+
+    @Test
+    public void drops_early_as_average_depth_grows() {
+        var queue = LinkQueue.red(1, 100, 2, 10, 0.5, 1, 7L);
+
+        int sent = 0;
+        for (int i = 0; i < 1000; i++)
+            if (queue.offer(0L, 1) != LinkQueue.DROPPED)
+                sent++;
+
+        assertThat(queue.getMaxDepth()).isBetween(3, 10);
+        assertThat(sent).isEqualTo(queue.getMaxDepth());
+        assertThat(queue.getDroppedPackets()).isEqualTo(1000L - sent);
+    }
+
+    @Test
+    public void averages_depth_with_given_weight() {
+        var queue = LinkQueue.red(1, 100, 50, 60, 0.1, 0.5, 7L);
+
+        queue.offer(0L, 1);
+        queue.offer(0L, 1);
+        queue.offer(0L, 1);
+
+        assertThat(queue.getAverageDepth()).isEqualTo(1.25);
+    }
+
+    @Test
+    public void errors_on_invalid_red_thresholds() {
+        assertThatThrownBy(() -> LinkQueue.red(1, 10, 5, 5, 0.1, 0.002, 1L))
+                .isExactlyInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("link queue: RED thresholds have to satisfy 0 <= min < max <= capacity");
+        assertThatThrownBy(() -> LinkQueue.tailDrop(1, 0))
+                .isExactlyInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("link queue: capacity has to be positive");
+    }
+}
@@ -0,0 +1,81 @@
+package ups.papersoda.netter.domain;
+
+import org.junit.jupiter.api.Test;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.domain.routing.ShortestPathBuilder;
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+import ups.papersoda.netter.generator.TopologyGenerator;
+import ups.papersoda.netter.generator.WeightDistribution;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class LinkStateRoutingTableTests {
+    // [[1]]--7--[[2]]--5--[[3]]--1--[[4]], [[1]]--20--[[4]]
+    private final List<RouterDTO> routerDTOs = List.of(
+            new RouterDTO(1L, List.of(new ConnectionDTO(1L, 7, 1L, 2L), new ConnectionDTO(2L, 20, 1L, 4L))),
+            new RouterDTO(2L, List.of(new ConnectionDTO(3L, 5, 2L, 3L), new ConnectionDTO(4L, 7, 2L, 1L))),
+            new RouterDTO(3L, List.of(new ConnectionDTO(5L, 1, 3L, 4L), new ConnectionDTO(6L, 5, 3L, 2L))),
+            new RouterDTO(4L, List.of(new ConnectionDTO(7L, 1, 4L, 3L), new ConnectionDTO(8L, 20, 4L, 1L)))
+    );
+
+    @Test
+    public void distances_match_shortest_path_builder() {
+        var routers = new RouterMapper().transformToRouters(
+                new TopologyGenerator(17L, WeightDistribution.uniform(1, 20)).erdosRenyi(60, 0.05));
+        var expected = ShortestPathBuilder.createRoutingTable(routers.values());
+        var routingTable = LinkStateRoutingTable.createRoutingTable(routers.values());
+
+        for (var from : routers.keySet())
+            for (var to : routers.keySet())
+                assertThat(routingTable.getRouterDistance(from, to)).isEqualTo(expected.getRouterDistance(from, to));
+    }
+
+    @Test
+    public void routers_run_dijkstra_again_after_topology_changes() {
+        var network = new Network(new RouterMapper(), routerDTOs, LinkStateRoutingTable::createRoutingTable);
+        var routingTable = (LinkStateRoutingTable)network.getRoutingTable();
+
+        assertThat(network.convergeRoutingTable()).isEqualTo(4);
+        assertThat(network.convergeRoutingTable()).isZero();
+        assertThat(routingTable.getNextShortestPathRouter(1L, 4L)).isEqualTo(2L);
+
+        routingTable.updateRouterBond(2L, 3L, 50);
+        assertThat(routingTable.getNextShortestPathRouter(1L, 4L)).isEqualTo(4L);
+        assertThat(routingTable.getRouterDistance(1L, 3L)).isEqualTo(21);
+
+        routingTable.removeRouter(4L);
+        assertThat(routingTable.getNextShortestPathRouter(1L, 3L)).isEqualTo(2L);
+        assertThat(routingTable.getRouterDistance(1L, 3L)).isEqualTo(57);
+        assertThat(routingTable.getRouterIds()).containsExactlyInAnyOrder(1L, 2L, 3L);
+    }
+
+    @Test
+    public void network_delivers_along_shortest_paths() {
+        var generated = new TopologyGenerator(9L, WeightDistribution.uniform(1, 9)).torus(6, 6);
+        var network = new Network(new RouterMapper(), generated, LinkStateRoutingTable::createRoutingTable);
+        var routingTable = network.getRoutingTable();
+
+        var packet = new Packet(1L, 1L, 22L);
+        network.beingPacketTransmission(List.of(packet));
+
+        assertThat(packet.getState()).isEqualTo(Packet.State.DELIVERED);
+        assertThat(packet.getPathWeight()).isEqualTo(routingTable.getRouterDistance(1L, 22L).longValue());
+    }
+
+    @Test
+    public void forwards_only_over_outgoing_links() {
+        // [[1]]--1-->[[2]]--1-->[[3]], [[3]]--1-->[[1]]
+        var routers = new RouterMapper().transformToRouters(List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 1, 1L, 2L))),
+                new RouterDTO(2L, List.of(new ConnectionDTO(2L, 1, 2L, 3L))),
+                new RouterDTO(3L, List.of(new ConnectionDTO(3L, 1, 3L, 1L)))
+        ));
+        var routingTable = LinkStateRoutingTable.createRoutingTable(routers.values());
+
+        assertThat(routingTable.getRouterDistance(1L, 3L)).isEqualTo(1);
+        assertThat(routingTable.getNextShortestPathRouter(1L, 3L)).isEqualTo(2L);
+    }
+}
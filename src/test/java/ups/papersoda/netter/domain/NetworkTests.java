@@ -2,11 +2,16 @@ package ups.papersoda.netter.domain;
 
 import org.junit.jupiter.api.Test;
 import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.domain.routing.ShortestPathBuilder;
 import ups.papersoda.netter.dto.ConnectionDTO;
 import ups.papersoda.netter.dto.RouterDTO;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -36,4 +41,150 @@ public class NetworkTests {
 
         assertThat(packets.get(0).getPath()).isEqualTo(List.of(1L, 2L, 3L));
     }
+
+    @Test
+    public void transmits_packets_along_same_paths_as_recursive_forwarding() {
+        // [[1]]--7--[[2]]--5--[[3]]--2--[[4]]
+        //   \-------3-------------------/
+        List<RouterDTO> routers = List.of(
+                new RouterDTO(1L, List.of(
+                        new ConnectionDTO(1L, 7, 1L, 2L),
+                        new ConnectionDTO(2L, 3, 1L, 4L))),
+                new RouterDTO(2L, List.of(new ConnectionDTO(3L, 5, 2L, 3L))),
+                new RouterDTO(3L, List.of(new ConnectionDTO(4L, 2, 3L, 4L))),
+                new RouterDTO(4L, List.of())
+        );
+        Network iterative = new Network(new RouterMapper(), routers);
+        Network recursive = new Network(new RouterMapper(), routers);
+        List<Packet> iterativePackets = List.of(new Packet(1L, 1L, 3L), new Packet(2L, 2L, 4L), new Packet(3L, 1L, 4L));
+        List<Packet> recursivePackets = List.of(new Packet(1L, 1L, 3L), new Packet(2L, 2L, 4L), new Packet(3L, 1L, 4L));
+
+
+        iterative.beingPacketTransmission(iterativePackets);
+        recursivePackets.forEach(packet -> recursive.getRouter(packet.getSourceId()).receivePacket(packet));
+
+
+        for (int i = 0; i < iterativePackets.size(); i++) {
+            assertThat(iterativePackets.get(i).getPath()).isEqualTo(recursivePackets.get(i).getPath());
+            assertThat(iterativePackets.get(i).getState()).isEqualTo(recursivePackets.get(i).getState());
+        }
+    }
+
+    @Test
+    public void drops_looping_packet_at_hop_limit() {
+        // [[1]]<-1->[[2]]--1--[[3]], 2-3 degrades after the table was built and 1 keeps advertising the old route
+        List<RouterDTO> routers = List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 1, 1L, 2L))),
+                new RouterDTO(2L, List.of(
+                        new ConnectionDTO(2L, 1, 2L, 1L),
+                        new ConnectionDTO(3L, 1, 2L, 3L))),
+                new RouterDTO(3L, List.of())
+        );
+        Network network = new Network(new RouterMapper(), routers, ShortestPathBuilder::createRoutingTable);
+        var routingTable = (DenseRoutingTable)network.getRoutingTable();
+        var index = routingTable.getRouterIndex();
+        routingTable.updateRouterBond(2L, 3L, 100);
+        routingTable.setRoute(index.indexOf(1L), index.indexOf(3L), 2, index.indexOf(2L));
+        network.setHopLimit(5);
+        List<Packet> packets = List.of(new Packet(1L, 1L, 3L));
+
+
+        network.beingPacketTransmission(packets);
+
+
+        assertThat(packets.get(0).getState()).isEqualTo(Packet.State.DROPPED);
+        assertThat(packets.get(0).getPath()).isEqualTo(List.of(1L, 2L, 1L, 2L, 1L, 2L));
+    }
+
+    @Test
+    public void drops_packet_from_unknown_source() {
+        Network network = new Network(new RouterMapper(), List.of(new RouterDTO(1L, List.of())));
+        List<Packet> packets = List.of(new Packet(1L, 9L, 1L));
+
+        network.beingPacketTransmission(packets);
+
+        assertThat(packets.get(0).getState()).isEqualTo(Packet.State.DROPPED);
+        assertThat(packets.get(0).getPath()).isEmpty();
+    }
+
+    @Test
+    public void transmits_packets_pulled_lazily_from_iterator() {
+        Network network = new Network(new RouterMapper(), chainRouterDTOs(), ShortestPathBuilder::createRoutingTable);
+        AtomicReference<Packet> previous = new AtomicReference<>();
+        Iterator<Packet> packets = LongStream.rangeClosed(1, 1_000)
+                .mapToObj(id -> {
+                    if (previous.get() != null)
+                        assertThat(previous.get().getState()).isEqualTo(Packet.State.DELIVERED);
+                    previous.set(new Packet(id, 1L, 3L));
+                    return previous.get();
+                })
+                .iterator();
+
+        network.beingPacketTransmission(packets);
+
+        assertThat(previous.get().getId()).isEqualTo(1_000L);
+        assertThat(previous.get().getState()).isEqualTo(Packet.State.DELIVERED);
+    }
+
+    @Test
+    public void transmits_packets_from_publisher_within_buffer_size() {
+        Network network = new Network(new RouterMapper(), chainRouterDTOs(), ShortestPathBuilder::createRoutingTable);
+        CountingPublisher publisher = new CountingPublisher(1_000);
+
+        var completion = network.beingPacketTransmission(publisher, 16);
+
+        assertThat(completion).isCompleted();
+        assertThat(publisher.emitted).isEqualTo(1_000);
+        assertThat(publisher.maxOutstanding).isLessThanOrEqualTo(16);
+    }
+
+    private static List<RouterDTO> chainRouterDTOs() {
+        // [[1]]--7--[[2]]--5--[[3]]
+        return List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 7, 1L, 2L))),
+                new RouterDTO(2L, List.of(new ConnectionDTO(2L, 5, 2L, 3L))),
+                new RouterDTO(3L, List.of())
+        );
+    }
+
+    private static class CountingPublisher implements Flow.Publisher<Packet> {
+        private final int packetCount;
+        private long requested;
+        private int emitted;
+        private long maxOutstanding;
+        private boolean emitting;
+
+
+        CountingPublisher(int packetCount) {
+            this.packetCount = packetCount;
+        }
+
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super Packet> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    requested += n;
+                    maxOutstanding = Math.max(maxOutstanding, requested);
+                    if (emitting)
+                        return;
+                    emitting = true;
+                    while (requested > 0 && emitted < packetCount) {
+                        requested--;
+                        emitted++;
+                        subscriber.onNext(new Packet(emitted, 1L, 3L));
+                    }
+                    emitting = false;
+                    if (emitted == packetCount)
+                        subscriber.onComplete();
+                }
+
+                @Override
+                public void cancel() {
+                    requested = 0;
+                }
+            });
+        }
+    }
 }
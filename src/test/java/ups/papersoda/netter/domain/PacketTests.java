@@ -0,0 +1,159 @@
+package ups.papersoda.netter.domain;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class PacketTests {
+    @Nested
+    class Path {
+        @Test
+        public void grows_path_past_initial_capacity() {
+            var packet = new Packet(1L, 1L, 40L);
+
+            for (long router = 1; router <= 40; router++)
+                packet.addToPath(router);
+
+            assertThat(packet.getPathLength()).isEqualTo(40);
+            assertThat(packet.getPathRouter(39)).isEqualTo(40L);
+            assertThat(packet.getPath()).hasSize(40).startsWith(1L, 2L, 3L);
+        }
+
+        @Test
+        public void path_view_is_read_only_and_follows_hops() {
+            var packet = new Packet(1L, 1L, 3L);
+            var path = packet.getPath();
+
+            packet.addToPath(1L);
+            packet.addToPath(2L);
+
+            assertThat(path).isEqualTo(List.of(1L, 2L));
+            assertThatThrownBy(() -> path.add(3L))
+                    .isExactlyInstanceOf(UnsupportedOperationException.class);
+        }
+
+        @Test
+        public void errors_when_hop_is_outside_path() {
+            var packet = new Packet(1L, 1L, 3L);
+            packet.addToPath(1L);
+
+            assertThatThrownBy(() -> packet.getPathRouter(1))
+                    .isExactlyInstanceOf(IndexOutOfBoundsException.class)
+                    .hasMessageContaining("packet: hop 1 out of path length 1");
+        }
+    }
+
+    @Nested
+    class Pool {
+        @Test
+        public void reuses_released_packets_reset() {
+            var pool = new PacketPool(4);
+            var packet = pool.acquire(1L, 1L, 3L);
+            packet.addToPath(1L);
+            packet.setState(Packet.State.DELIVERED);
+            packet.setDeliveryTime(12L);
+
+            pool.release(packet);
+            var reused = pool.acquire(2L, 2L, 4L);
+
+            assertThat(reused).isSameAs(packet);
+            assertThat(reused.getId()).isEqualTo(2L);
+            assertThat(reused.getSourceId()).isEqualTo(2L);
+            assertThat(reused.getDestId()).isEqualTo(4L);
+            assertThat(reused.getPath()).isEmpty();
+            assertThat(reused.getState()).isEqualTo(Packet.State.IN_TRANSIT);
+            assertThat(reused.getDeliveryTime()).isEqualTo(Packet.NOT_DELIVERED);
+            assertThat(pool.created()).isEqualTo(1L);
+        }
+
+        @Test
+        public void keeps_at_most_capacity_packets() {
+            var pool = new PacketPool(1);
+
+            pool.release(new Packet(1L, 1L, 2L));
+            pool.release(new Packet(2L, 1L, 2L));
+
+            assertThat(pool.available()).isEqualTo(1);
+        }
+
+        @Test
+        public void errors_when_packet_is_released_twice() {
+            var pool = new PacketPool(4);
+            var packet = pool.acquire(1L, 1L, 2L);
+            pool.release(packet);
+
+            assertThatThrownBy(() -> pool.release(packet))
+                    .isExactlyInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("packet pool: packet 1 was already released");
+            assertThat(pool.available()).isEqualTo(1);
+
+            pool.release(pool.acquire(2L, 1L, 2L));
+
+            assertThat(pool.available()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    class Payload {
+        @Test
+        public void shares_payload_bytes_without_copying() {
+            var pool = new PayloadPool(2, 64);
+            var slot = pool.acquire(4);
+            slot.putInt(0, 0xCAFE);
+            var packet = new Packet(1L, 1L, 2L);
+
+            packet.setPayload(slot);
+            slot.putInt(0, 0xBEEF);
+
+            assertThat(packet.getPayloadSize()).isEqualTo(4);
+            assertThat(packet.getPayload().getInt(0)).isEqualTo(0xBEEF);
+            assertThat(packet.getPayload().isReadOnly()).isTrue();
+            assertThat(packet.toString()).contains("payloadSize=4");
+        }
+
+        @Test
+        public void hands_out_every_slot_once_until_released() {
+            var pool = new PayloadPool(2, 16);
+            var first = pool.acquire(16);
+            var second = pool.acquire(8);
+
+            assertThat(pool.acquire(1)).isNull();
+            assertThat(second.remaining()).isEqualTo(8);
+
+            pool.release(first);
+
+            assertThat(pool.acquire(16)).isSameAs(first);
+        }
+
+        @Test
+        public void errors_when_payload_exceeds_slot_size() {
+            var pool = new PayloadPool(1, 16);
+
+            assertThatThrownBy(() -> pool.acquire(17))
+                    .isExactlyInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("payload pool: 17 bytes exceed slot size 16");
+            assertThatThrownBy(() -> pool.release(ByteBuffer.allocate(16)))
+                    .isExactlyInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("payload pool: buffer was not acquired from this pool");
+        }
+
+        @Test
+        public void errors_when_slot_is_foreign_or_released_twice() {
+            var pool = new PayloadPool(2, 16);
+            var slot = pool.acquire(16);
+            pool.release(slot);
+
+            assertThatThrownBy(() -> pool.release(slot))
+                    .isExactlyInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("payload pool: slot 1 was already released");
+            assertThatThrownBy(() -> pool.release(new PayloadPool(1, 16).acquire(16)))
+                    .isExactlyInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("payload pool: buffer was not acquired from this pool");
+            assertThat(pool.available()).isEqualTo(2);
+        }
+    }
+}
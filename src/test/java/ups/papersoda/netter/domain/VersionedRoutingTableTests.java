@@ -0,0 +1,167 @@
+package ups.papersoda.netter.domain;
+
+import org.junit.jupiter.api.Test;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.domain.routing.WorklistConvergence;
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+import ups.papersoda.netter.generator.TopologyGenerator;
+import ups.papersoda.netter.generator.WeightDistribution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class VersionedRoutingTableTests {
+    // [[1]]--7--[[2]]--5--[[3]]
+    private final List<RouterDTO> routerDTOs = List.of(
+            new RouterDTO(1L, List.of(new ConnectionDTO(1L, 7, 1L, 2L))),
+            new RouterDTO(2L, List.of(new ConnectionDTO(2L, 5, 2L, 3L))),
+            new RouterDTO(3L, List.of())
+    );
+
+    @Test
+    public void published_version_leaves_earlier_snapshots_untouched() {
+        var routers = new RouterMapper().transformToRouters(routerDTOs);
+        var routingTable = VersionedRoutingTable.createRoutingTable(routers.values());
+        var initial = routingTable.snapshot();
+
+        routingTable.tryUpdateTable(routers.get(1L));
+        routingTable.updateRouterBond(1L, 2L, 2);
+
+        assertThat(routingTable.getVersion()).isEqualTo(2);
+        assertThat(routingTable.getRouterDistance(1L, 3L)).isEqualTo(12);
+        assertThat(routingTable.getRouterDistance(1L, 2L)).isEqualTo(2);
+        assertThat(initial.getDistance(1L, 3L)).isEqualTo(RoutingTable.NO_CONNECTION);
+        assertThat(initial.getDistance(1L, 2L)).isEqualTo(7);
+    }
+
+    @Test
+    public void compiled_snapshot_links_follow_route_changes() {
+        var routers = new RouterMapper().transformToRouters(new TopologyGenerator(9L, WeightDistribution.constant(1)).grid(6, 6));
+        var routingTable = VersionedRoutingTable.createRoutingTable(routers.values());
+        routingTable.update(table -> new WorklistConvergence(table).converge());
+
+        assertCompiledLinksMatchScan(routingTable);
+
+        routingTable.tryUpdateTable(routers.get(1L));
+        routingTable.updateRouterBond(8L, 9L, 3);
+        routingTable.updateRouterBond(15L, 21L, 2);
+
+        assertCompiledLinksMatchScan(routingTable);
+
+        routingTable.removeRouter(22L);
+
+        assertCompiledLinksMatchScan(routingTable);
+    }
+
+    @Test
+    public void link_changes_recompile_only_links_of_routers_around_them() {
+        // [[1]]--7--[[2]]--5--[[3]]   [[4]]--1--[[5]]--1--[[6]]
+        var routers = new RouterMapper().transformToRouters(List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 7, 1L, 2L))),
+                new RouterDTO(2L, List.of(new ConnectionDTO(2L, 5, 2L, 3L))),
+                new RouterDTO(3L, List.of()),
+                new RouterDTO(4L, List.of(new ConnectionDTO(3L, 1, 4L, 5L))),
+                new RouterDTO(5L, List.of(new ConnectionDTO(4L, 1, 5L, 6L))),
+                new RouterDTO(6L, List.of())
+        ));
+        var routingTable = VersionedRoutingTable.createRoutingTable(routers.values());
+        routingTable.update(table -> new WorklistConvergence(table).converge());
+        var index = routingTable.snapshot().getRouterIndex();
+        var before = routingTable.snapshot();
+
+        routingTable.updateRouterBond(1L, 2L, 2);
+        routingTable.failLink(2L, 3L);
+        routingTable.removeRouter(3L);
+
+        var after = routingTable.snapshot();
+        for (long untouched = 4; untouched <= 6; untouched++)
+            assertThat(after.linkRow(index.indexOf(untouched))).isSameAs(before.linkRow(index.indexOf(untouched)));
+        assertThat(after.linkRow(index.indexOf(1L))).isNotSameAs(before.linkRow(index.indexOf(1L)));
+        assertThat(routingTable.getRouterDistance(1L, 2L)).isEqualTo(2);
+        assertThat(routingTable.getNextHop(routers.get(2L), new Packet(1L, 2L, 3L))).isNull();
+        assertCompiledLinksMatchScan(routingTable);
+    }
+
+    @Test
+    public void errors_when_wrapping_multipath_table() {
+        var routingTable = DenseRoutingTable.createRoutingTable(new RouterMapper().transformToRouters(routerDTOs).values());
+        routingTable.setMultipath(true);
+
+        assertThatThrownBy(() -> new VersionedRoutingTable(routingTable))
+                .isExactlyInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("versioned routing table: multipath tables are not supported");
+    }
+
+    private void assertCompiledLinksMatchScan(final VersionedRoutingTable routingTable) {
+        var snapshot = routingTable.snapshot();
+        var size = snapshot.getRouterIndex().size();
+        var scanned = routingTable.update(table -> {
+            var links = new int[size * size];
+            for (int from = 0; from < size; from++)
+                for (int to = 0; to < size; to++)
+                    links[from * size + to] = table.isRemoved(from) ? DenseRoutingTable.NO_LINK : table.nextHopLink(from, to);
+            return links;
+        });
+        for (int from = 0; from < size; from++)
+            for (int to = 0; to < size; to++)
+                assertThat(snapshot.nextHopLink(from, to)).as("link from %d to %d", from, to).isEqualTo(scanned[from * size + to]);
+    }
+
+    @Test
+    public void readers_never_see_half_applied_update() throws Exception {
+        var routers = new RouterMapper().transformToRouters(routerDTOs);
+        var routingTable = VersionedRoutingTable.createRoutingTable(routers.values());
+        var index = routingTable.snapshot().getRouterIndex();
+        int first = index.indexOf(1L), third = index.indexOf(3L);
+        var done = new AtomicBoolean();
+        var failure = new AtomicReference<Throwable>();
+
+        var readers = new ArrayList<Thread>();
+        for (int r = 0; r < 3; r++) {
+            var reader = new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        var snapshot = routingTable.snapshot();
+                        assertThat(snapshot.distance(first, third)).isEqualTo(snapshot.distance(third, first));
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        for (int distance = 1; distance <= 20_000; distance++) {
+            final int route = distance;
+            routingTable.update(table -> {
+                table.setRoute(first, third, route, index.indexOf(2L));
+                table.setRoute(third, first, route, index.indexOf(2L));
+                return null;
+            });
+        }
+        done.set(true);
+        for (var reader : readers)
+            reader.join();
+
+        assertThat(failure.get()).isNull();
+        assertThat(routingTable.getRouterDistance(1L, 3L)).isEqualTo(20_000);
+    }
+
+    @Test
+    public void network_converges_and_forwards_in_parallel() {
+        var network = new Network(new RouterMapper(), routerDTOs, VersionedRoutingTable::createRoutingTable);
+        network.convergeRoutingTable();
+        var packets = List.of(new Packet(1L, 1L, 3L), new Packet(2L, 3L, 1L));
+
+        network.beingParallelPacketTransmission(packets, 2);
+
+        assertThat(network.getRoutingTable().isConverged()).isTrue();
+        assertThat(packets.get(0).getPath()).containsExactly(1L, 2L, 3L);
+        assertThat(packets.get(1).getState()).isEqualTo(Packet.State.DROPPED);
+    }
+}
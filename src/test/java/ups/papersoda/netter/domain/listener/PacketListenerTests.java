@@ -0,0 +1,138 @@
+package ups.papersoda.netter.domain.listener;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import ups.papersoda.netter.domain.DenseRoutingTable;
+import ups.papersoda.netter.domain.Network;
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.Router;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class PacketListenerTests {
+    // [[1]]--1-->[[2]]--1-->[[3]]
+    private static Network network() {
+        var network = new Network(new RouterMapper(), List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 1, 1L, 2L))),
+                new RouterDTO(2L, List.of(new ConnectionDTO(2L, 1, 2L, 3L))),
+                new RouterDTO(3L, List.of())
+        ), DenseRoutingTable::createRoutingTable);
+        network.convergeRoutingTable();
+        return network;
+    }
+
+    private static List<Packet> packets(final int count) {
+        return LongStream.range(0, count)
+                .mapToObj(id -> id % 2 == 0 ? new Packet(id, 1L, 3L) : new Packet(id, 3L, 1L))
+                .collect(Collectors.toList());
+    }
+
+
+    @Nested
+    public class Batching {
+        @Test
+        public void hands_every_event_to_the_sink_in_batches() {
+            var network = network();
+            var batches = Collections.synchronizedList(new ArrayList<List<PacketEvent>>());
+            var listener = new BatchingPacketListener(batches::add, 1_000, 64);
+            network.setPacketListener(listener);
+
+            network.beingPacketTransmission(packets(500));
+            listener.close();
+
+            var events = batches.stream().flatMap(List::stream).collect(Collectors.toList());
+            var batchSizes = batches.stream().map(List::size).collect(Collectors.toList());
+            assertThat(events).hasSize(500);
+            assertThat(batchSizes).allSatisfy(size -> assertThat(size).isBetween(1, 64));
+            assertThat(events).filteredOn(event -> event.getState() == Packet.State.DELIVERED)
+                    .hasSize(250)
+                    .allSatisfy(event -> {
+                        assertThat(event.getRouterId()).isEqualTo(3L);
+                        assertThat(event.getHops()).isEqualTo(2);
+                    });
+            assertThat(listener.getDiscardedEvents()).isZero();
+        }
+
+        @Test
+        public void discards_events_instead_of_blocking_when_full() throws InterruptedException {
+            var network = network();
+            var sinkEntered = new CountDownLatch(1);
+            var release = new CountDownLatch(1);
+            var listener = new BatchingPacketListener(batch -> {
+                sinkEntered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, 10, 1);
+            network.setPacketListener(listener);
+
+            network.beingPacketTransmission(packets(1));
+            sinkEntered.await();
+            network.beingPacketTransmission(packets(100));
+            release.countDown();
+            listener.close();
+
+            assertThat(listener.getDiscardedEvents()).isEqualTo(90);
+        }
+    }
+
+    @Nested
+    public class RingBuffer {
+        @Test
+        public void keeps_latest_events_oldest_first() {
+            var network = network();
+            var listener = new RingBufferPacketListener(100);
+            network.setPacketListener(listener);
+
+            network.beingPacketTransmission(packets(300));
+
+            assertThat(listener.capacity()).isEqualTo(128);
+            assertThat(listener.getWrittenEvents()).isEqualTo(300);
+            assertThat(listener.latest()).extracting(PacketEvent::getPacketId)
+                    .containsExactlyElementsOf(LongStream.range(172, 300).boxed().collect(Collectors.toList()));
+            assertThat(listener.latest().get(0).getState()).isEqualTo(Packet.State.DELIVERED);
+            assertThat(listener.latest().get(1).getState()).isEqualTo(Packet.State.DROPPED);
+        }
+
+        @Test
+        public void writers_lapping_the_ring_never_leave_torn_events() throws InterruptedException {
+            var listener = new RingBufferPacketListener(4);
+            var writers = new ArrayList<Thread>();
+            for (long writer = 1; writer <= 4; writer++) {
+                var router = new Router(writer, Map.of());
+                var first = writer * 1_000_000L;
+                writers.add(new Thread(() -> {
+                    for (long id = first; id < first + 100_000; id++)
+                        listener.delivered(router, new Packet(id, id, id));
+                }));
+            }
+            writers.forEach(Thread::start);
+
+            var torn = new ArrayList<PacketEvent>();
+            while (writers.stream().anyMatch(Thread::isAlive))
+                for (PacketEvent event : listener.latest())
+                    if (event.getSourceId() != event.getPacketId() || event.getDestId() != event.getPacketId() ||
+                            event.getPacketId() / 1_000_000L != event.getRouterId())
+                        torn.add(event);
+            for (Thread writer : writers)
+                writer.join();
+
+            assertThat(torn).isEmpty();
+            assertThat(listener.getWrittenEvents()).isEqualTo(400_000L);
+            assertThat(listener.latest()).hasSizeLessThanOrEqualTo(4);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ups.papersoda.netter.domain.routing;
+
+import org.junit.jupiter.api.Test;
+import ups.papersoda.netter.domain.DenseRoutingTable;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.*;
+import static ups.papersoda.netter.domain.routing.WorklistConvergenceTests.randomRouterDTOs;
+
+public class RoundConvergenceTests {
+    @Test
+    public void matches_shortest_path_builder() {
+        var routers = new RouterMapper().transformToRouters(randomRouterDTOs(80, 2, 41L));
+        var built = ShortestPathBuilder.createRoutingTable(routers.values());
+        var converged = DenseRoutingTable.createRoutingTable(routers.values());
+        var pool = new ForkJoinPool(4);
+
+        new RoundConvergence(pool).converge(converged);
+        pool.shutdown();
+
+        assertThat(converged.isConverged()).isTrue();
+        for (int from = 0; from < built.size(); from++)
+            for (int to = 0; to < built.size(); to++) {
+                assertThat(converged.distance(from, to)).isEqualTo(built.distance(from, to));
+                assertThat(converged.nextHopIndex(from, to)).isEqualTo(built.nextHopIndex(from, to));
+            }
+    }
+
+    @Test
+    public void takes_one_round_per_extra_hop_plus_a_quiet_round() {
+        // [[1]]--1--[[2]]--1--[[3]]--1--[[4]]
+        List<RouterDTO> routerDTOs = List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 1, 1L, 2L))),
+                new RouterDTO(2L, List.of(new ConnectionDTO(2L, 1, 2L, 3L))),
+                new RouterDTO(3L, List.of(new ConnectionDTO(3L, 1, 3L, 4L))),
+                new RouterDTO(4L, List.of())
+        );
+        var routers = new RouterMapper().transformToRouters(routerDTOs);
+        var routingTable = DenseRoutingTable.createRoutingTable(routers.values());
+
+        var rounds = new RoundConvergence().converge(routingTable);
+
+        assertThat(rounds).isEqualTo(3);
+        assertThat(routingTable.getRouterDistance(1L, 4L)).isEqualTo(3);
+        assertThat(routingTable.getNextShortestPathRouter(4L, 1L)).isEqualTo(3L);
+    }
+}
@@ -0,0 +1,71 @@
+package ups.papersoda.netter.domain.routing;
+
+import org.junit.jupiter.api.Test;
+import ups.papersoda.netter.domain.DenseRoutingTable;
+import ups.papersoda.netter.domain.Network;
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.RoutingTable;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.*;
+import static ups.papersoda.netter.domain.routing.WorklistConvergenceTests.randomRouterDTOs;
+import static ups.papersoda.netter.domain.routing.WorklistConvergenceTests.shortestDistances;
+
+public class ShortestPathBuilderTests {
+    @Test
+    public void builds_shortest_distances_for_every_pair() {
+        var routerDTOs = randomRouterDTOs(60, 3, 3L);
+        var routers = new RouterMapper().transformToRouters(routerDTOs);
+        var pool = new ForkJoinPool(4);
+
+        var routingTable = new ShortestPathBuilder(pool).build(routers.values());
+        pool.shutdown();
+
+        var expected = shortestDistances(routerDTOs);
+        assertThat(routingTable.isConverged()).isTrue();
+        for (var from : routerDTOs)
+            for (var to : routerDTOs)
+                if (from.id() != to.id())
+                    assertThat(routingTable.getRouterDistance(from.id(), to.id()))
+                            .isEqualTo(expected.get(from.id()).getOrDefault(to.id(), RoutingTable.NO_CONNECTION));
+    }
+
+    @Test
+    public void matches_worklist_convergence() {
+        var routers = new RouterMapper().transformToRouters(randomRouterDTOs(50, 2, 17L));
+        var built = ShortestPathBuilder.createRoutingTable(routers.values());
+        var converged = DenseRoutingTable.createRoutingTable(routers.values());
+
+        new WorklistConvergence(converged).converge();
+
+        for (int from = 0; from < built.size(); from++)
+            for (int to = 0; to < built.size(); to++)
+                assertThat(built.distance(from, to)).isEqualTo(converged.distance(from, to));
+    }
+
+    @Test
+    public void network_built_up_front_forwards_without_updating_table() {
+        // [[1]]--7--[[2]]--5--[[3]]
+        //   \-------15-------/
+        List<RouterDTO> routerDTOs = List.of(
+                new RouterDTO(1L, List.of(
+                        new ConnectionDTO(1L, 7, 1L, 2L),
+                        new ConnectionDTO(3L, 15, 1L, 3L))),
+                new RouterDTO(2L, List.of(new ConnectionDTO(2L, 5, 2L, 3L))),
+                new RouterDTO(3L, List.of())
+        );
+        var network = new Network(new RouterMapper(), routerDTOs, ShortestPathBuilder::createRoutingTable);
+        var packets = List.of(new Packet(1L, 1L, 3L));
+
+        network.beingPacketTransmission(packets);
+
+        assertThat(network.getRoutingTable().isConverged()).isTrue();
+        assertThat(network.getRoutingTable().getNextShortestPathRouter(1L, 3L)).isEqualTo(2L);
+        assertThat(packets.get(0).getPath()).isEqualTo(List.of(1L, 2L, 3L));
+    }
+}
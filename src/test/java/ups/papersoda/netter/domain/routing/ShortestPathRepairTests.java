@@ -0,0 +1,171 @@
+package ups.papersoda.netter.domain.routing;
+
+import org.junit.jupiter.api.Test;
+import ups.papersoda.netter.domain.DenseRoutingTable;
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.Router;
+import ups.papersoda.netter.domain.RoutingTable;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+import static ups.papersoda.netter.domain.routing.WorklistConvergenceTests.randomRouterDTOs;
+
+public class ShortestPathRepairTests {
+    @Test
+    public void repaired_table_matches_full_rebuild_after_every_event() {
+        var routers = new RouterMapper().transformToRouters(randomRouterDTOs(60, 2, 29L));
+        var repaired = ShortestPathBuilder.createRoutingTable(routers.values());
+        var rebuilt = DenseRoutingTable.createRoutingTable(routers.values());
+        var graph = repaired.getGraph();
+        var random = new Random(29L);
+
+        for (int event = 0; event < 40; event++) {
+            var router = random.nextInt(repaired.size());
+            if (repaired.isRemoved(router) || graph.degree(router) == 0)
+                continue;
+
+            if (event % 10 == 9) {
+                repaired.removeRouter(repaired.getRouterIndex().idOf(router));
+                rebuilt.markRemoved(router);
+            } else {
+                var neighbour = graph.target(graph.start(router) + random.nextInt(graph.degree(router)));
+                if (repaired.isRemoved(neighbour))
+                    continue;
+                if (event % 10 == 4) {
+                    repaired.failLink(repaired.getRouterIndex().idOf(router), repaired.getRouterIndex().idOf(neighbour));
+                    rebuilt.setLinkWeight(router, neighbour, RoutingTable.NO_CONNECTION);
+                    new ShortestPathBuilder().converge(rebuilt);
+                    assertSameRoutes(repaired, rebuilt, routers);
+                    continue;
+                }
+                var weight = 1 + random.nextInt(20);
+                repaired.updateRouterBond(
+                        repaired.getRouterIndex().idOf(router), repaired.getRouterIndex().idOf(neighbour), weight);
+                rebuilt.setLinkWeight(router, neighbour, weight);
+            }
+            new ShortestPathBuilder().converge(rebuilt);
+
+            assertThat(repaired.isConverged()).isTrue();
+            assertSameRoutes(repaired, rebuilt, routers);
+        }
+    }
+
+    @Test
+    public void reroutes_around_removed_router() {
+        // [[1]]--1--[[2]]--1--[[3]]
+        //   \-------5--------/
+        List<RouterDTO> routerDTOs = List.of(
+                new RouterDTO(1L, List.of(
+                        new ConnectionDTO(1L, 1, 1L, 2L),
+                        new ConnectionDTO(3L, 5, 1L, 3L))),
+                new RouterDTO(2L, List.of(new ConnectionDTO(2L, 1, 2L, 3L))),
+                new RouterDTO(3L, List.of())
+        );
+        var routers = new RouterMapper().transformToRouters(routerDTOs);
+        var routingTable = ShortestPathBuilder.createRoutingTable(routers.values());
+
+        routingTable.removeRouter(2L);
+
+        assertThat(routingTable.getRouterDistance(1L, 3L)).isEqualTo(5);
+        assertThat(routingTable.getNextShortestPathRouter(1L, 3L)).isEqualTo(3L);
+        assertThat(routingTable.getNextHop(routers.get(1L), new Packet(1L, 1L, 3L))).isEqualTo(3L);
+    }
+
+    @Test
+    public void reroutes_around_failed_link() {
+        // [[1]]--1--[[2]]--1--[[3]]--1--[[4]]
+        //   \-------------10-------------/
+        List<RouterDTO> routerDTOs = List.of(
+                new RouterDTO(1L, List.of(
+                        new ConnectionDTO(1L, 1, 1L, 2L),
+                        new ConnectionDTO(2L, 10, 1L, 4L))),
+                new RouterDTO(2L, List.of(
+                        new ConnectionDTO(3L, 1, 2L, 1L),
+                        new ConnectionDTO(4L, 1, 2L, 3L))),
+                new RouterDTO(3L, List.of(
+                        new ConnectionDTO(5L, 1, 3L, 2L),
+                        new ConnectionDTO(6L, 1, 3L, 4L))),
+                new RouterDTO(4L, List.of(
+                        new ConnectionDTO(7L, 1, 4L, 3L),
+                        new ConnectionDTO(8L, 10, 4L, 1L)))
+        );
+        var routers = new RouterMapper().transformToRouters(routerDTOs);
+        var routingTable = ShortestPathBuilder.createRoutingTable(routers.values());
+        assertThat(routingTable.getNextHop(routers.get(2L), new Packet(1L, 2L, 4L))).isEqualTo(3L);
+
+        routingTable.failLink(2L, 3L);
+
+        assertThat(routingTable.isConverged()).isTrue();
+        assertThat(routingTable.getRouterDistance(2L, 4L)).isEqualTo(11);
+        assertThat(routingTable.getRouterDistance(3L, 1L)).isEqualTo(11);
+        assertThat(routingTable.getNextHop(routers.get(2L), new Packet(1L, 2L, 4L))).isEqualTo(1L);
+        assertThat(routingTable.getNextHop(routers.get(1L), new Packet(2L, 1L, 3L))).isEqualTo(4L);
+        assertThat(routingTable.getNextHop(routers.get(3L), new Packet(3L, 3L, 2L))).isEqualTo(4L);
+
+        routingTable.updateRouterBond(2L, 3L, 1);
+
+        assertThat(routingTable.getRouterDistance(2L, 4L)).isEqualTo(2);
+        assertThat(routingTable.getNextHop(routers.get(2L), new Packet(1L, 2L, 4L))).isEqualTo(3L);
+    }
+
+    @Test
+    public void errors_when_link_weight_is_not_positive() {
+        List<RouterDTO> routerDTOs = List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 1, 1L, 2L))),
+                new RouterDTO(2L, List.of())
+        );
+        var routers = new RouterMapper().transformToRouters(routerDTOs);
+        var routingTable = ShortestPathBuilder.createRoutingTable(routers.values());
+
+        assertThatThrownBy(() -> routingTable.updateRouterBond(1L, 2L, RoutingTable.NO_CONNECTION))
+                .isExactlyInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("routing table: link weight has to be positive, was -1");
+        assertThat(routingTable.getRouterDistance(1L, 2L)).isEqualTo(1);
+    }
+
+    @Test
+    public void errors_when_routers_are_not_linked() {
+        List<RouterDTO> routerDTOs = List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 1, 1L, 2L))),
+                new RouterDTO(2L, List.of()),
+                new RouterDTO(3L, List.of())
+        );
+        var routers = new RouterMapper().transformToRouters(routerDTOs);
+        var routingTable = ShortestPathBuilder.createRoutingTable(routers.values());
+        var first = routingTable.getRouterIndex().indexOf(1L);
+        var third = routingTable.getRouterIndex().indexOf(3L);
+
+        assertThatThrownBy(() -> new ShortestPathRepair(routingTable).updateLinkWeight(first, third, 3))
+                .isExactlyInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("route repair: routers " + first + " and " + third + " are not linked");
+    }
+
+    private static void assertSameRoutes(DenseRoutingTable repaired, DenseRoutingTable rebuilt, Map<Long, Router> routers) {
+        var index = repaired.getRouterIndex();
+        for (int from = 0; from < repaired.size(); from++) {
+            if (repaired.isRemoved(from))
+                continue;
+            for (int to = 0; to < repaired.size(); to++) {
+                if (repaired.isRemoved(to))
+                    continue;
+                var distance = repaired.distance(from, to);
+                assertThat(distance).isEqualTo(rebuilt.distance(from, to));
+                assertThat(repaired.nextHopIndex(from, to)).isEqualTo(rebuilt.nextHopIndex(from, to));
+                var scannedHop = repaired.nextHopIndex(from, to);
+                assertThat(repaired.getNextHop(routers.get(index.idOf(from)), new Packet(1L, index.idOf(from), index.idOf(to))))
+                        .isEqualTo(scannedHop == DenseRoutingTable.NO_HOP ? null : index.idOf(scannedHop));
+                if (from == to || distance == RoutingTable.NO_CONNECTION)
+                    continue;
+
+                var nextHop = repaired.nextHop(from, to);
+                assertThat(repaired.linkWeightBetween(from, nextHop) + repaired.distance(nextHop, to)).isEqualTo(distance);
+            }
+        }
+    }
+}
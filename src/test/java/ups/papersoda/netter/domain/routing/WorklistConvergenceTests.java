@@ -0,0 +1,159 @@
+package ups.papersoda.netter.domain.routing;
+
+import org.junit.jupiter.api.Test;
+import ups.papersoda.netter.domain.DenseRoutingTable;
+import ups.papersoda.netter.domain.Network;
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.RoutingTable;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class WorklistConvergenceTests {
+    @Test
+    public void converges_to_shortest_distances() {
+        var routerDTOs = randomRouterDTOs(40, 3, 11L);
+        var routers = new RouterMapper().transformToRouters(routerDTOs);
+        var routingTable = DenseRoutingTable.createRoutingTable(routers.values());
+
+        new WorklistConvergence(routingTable).converge();
+
+        var expected = shortestDistances(routerDTOs);
+        for (var from : routerDTOs)
+            for (var to : routerDTOs)
+                if (from.id() != to.id())
+                    assertThat(routingTable.getRouterDistance(from.id(), to.id()))
+                            .isEqualTo(expected.get(from.id()).getOrDefault(to.id(), RoutingTable.NO_CONNECTION));
+    }
+
+    @Test
+    public void next_hops_lead_along_shortest_distances() {
+        var routerDTOs = randomRouterDTOs(30, 2, 5L);
+        var routers = new RouterMapper().transformToRouters(routerDTOs);
+        var routingTable = DenseRoutingTable.createRoutingTable(routers.values());
+
+        new WorklistConvergence(routingTable).converge();
+
+        for (var from : routerDTOs)
+            for (var to : routerDTOs) {
+                if (from.id() == to.id() || routingTable.getRouterDistance(from.id(), to.id()).intValue() == RoutingTable.NO_CONNECTION)
+                    continue;
+                long nextHop = routingTable.getNextShortestPathRouter(from.id(), to.id());
+                int viaNextHop = nextHop == to.id()
+                        ? 0
+                        : routingTable.getRouterDistance(nextHop, to.id()).intValue();
+                assertThat(routingTable.getRouterDistance(from.id(), nextHop).intValue() + viaNextHop)
+                        .isEqualTo(routingTable.getRouterDistance(from.id(), to.id()));
+            }
+    }
+
+    @Test
+    public void only_relaxes_dirty_routes_after_convergence() {
+        // [[1]]--7--[[2]]--5--[[3]]--1--[[4]]
+        var routers = new RouterMapper().transformToRouters(List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 7, 1L, 2L))),
+                new RouterDTO(2L, List.of(new ConnectionDTO(2L, 5, 2L, 3L))),
+                new RouterDTO(3L, List.of(new ConnectionDTO(3L, 1, 3L, 4L))),
+                new RouterDTO(4L, List.of())
+        ));
+        var routingTable = DenseRoutingTable.createRoutingTable(routers.values());
+        var convergence = new WorklistConvergence(routingTable);
+
+        assertThat(convergence.converge()).isGreaterThan(0);
+        assertThat(convergence.isConverged()).isTrue();
+        assertThat(convergence.converge()).isZero();
+
+        routingTable.updateRouterBond(1L, 2L, 2);
+        convergence.markDirty(1L);
+        convergence.markDirty(2L);
+        convergence.converge();
+
+        assertThat(routingTable.getRouterDistance(1L, 4L)).isEqualTo(8);
+        assertThat(routingTable.getRouterDistance(4L, 1L)).isEqualTo(8);
+    }
+
+    @Test
+    public void network_forwards_over_converged_table_without_updating_it() {
+        List<RouterDTO> routerDTOs = List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 7, 1L, 2L))),
+                new RouterDTO(2L, List.of(new ConnectionDTO(2L, 5, 2L, 3L))),
+                new RouterDTO(3L, List.of())
+        );
+        var network = new Network(new RouterMapper(), routerDTOs, DenseRoutingTable::createRoutingTable);
+        network.convergeRoutingTable();
+        var converged = network.getRoutingTable().getRouterDistance(1L, 3L);
+        var packets = List.of(new Packet(1L, 1L, 3L));
+
+        network.beingPacketTransmission(packets);
+
+        assertThat(converged).isEqualTo(12);
+        assertThat(packets.get(0).getPath()).isEqualTo(List.of(1L, 2L, 3L));
+    }
+
+    @Test
+    public void errors_when_network_table_is_not_dense() {
+        var network = new Network(new RouterMapper(), List.of(new RouterDTO(1L, List.of())));
+
+        assertThatThrownBy(network::convergeRoutingTable)
+                .isExactlyInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("network: only a dense or link-state routing table can be converged");
+    }
+
+    static List<RouterDTO> randomRouterDTOs(int routerCount, int connectionsPerRouter, long seed) {
+        var random = new Random(seed);
+        var routerDTOs = new ArrayList<RouterDTO>();
+        long connectionId = 1L;
+        for (long router = 1; router <= routerCount; router++) {
+            var connections = new ArrayList<ConnectionDTO>();
+            var targets = new HashSet<Long>();
+            for (int c = 0; c < connectionsPerRouter; c++) {
+                long target = 1 + random.nextInt(routerCount);
+                if (target == router || !targets.add(target))
+                    continue;
+                connections.add(new ConnectionDTO(connectionId++, 1 + random.nextInt(20), router, target));
+            }
+            routerDTOs.add(new RouterDTO(router, connections));
+        }
+        return routerDTOs;
+    }
+
+    static Map<Long, Map<Long, Integer>> shortestDistances(List<RouterDTO> routerDTOs) {
+        var ids = routerDTOs.stream().map(RouterDTO::id).toArray(Long[]::new);
+        int n = ids.length;
+        var position = new HashMap<Long, Integer>();
+        for (int i = 0; i < n; i++)
+            position.put(ids[i], i);
+
+        long[][] distances = new long[n][n];
+        for (long[] row : distances)
+            Arrays.fill(row, Long.MAX_VALUE / 4);
+        for (int i = 0; i < n; i++)
+            distances[i][i] = 0;
+        for (var routerDTO : routerDTOs)
+            for (var connection : routerDTO.getConnections()) {
+                int from = position.get(routerDTO.id());
+                int to = position.get(connection.getToRouter());
+                long weight = Math.min(distances[from][to], connection.getWeight().longValue());
+                distances[from][to] = weight;
+                distances[to][from] = weight;
+            }
+        for (int k = 0; k < n; k++)
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++)
+                    distances[i][j] = Math.min(distances[i][j], distances[i][k] + distances[k][j]);
+
+        var result = new HashMap<Long, Map<Long, Integer>>();
+        for (int i = 0; i < n; i++) {
+            var row = new HashMap<Long, Integer>();
+            for (int j = 0; j < n; j++)
+                if (distances[i][j] < Long.MAX_VALUE / 4)
+                    row.put(ids[j], (int)distances[i][j]);
+            result.put(ids[i], row);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,83 @@
+package ups.papersoda.netter.domain.transmission;
+
+import org.junit.jupiter.api.Test;
+import ups.papersoda.netter.domain.Network;
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.domain.routing.ShortestPathBuilder;
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class MailboxTransmissionTests {
+    @Test
+    public void forwards_packets_concurrently_along_sequential_paths() {
+        var routerDTOs = gridRouterDTOs(12);
+        var sequential = new Network(new RouterMapper(), routerDTOs, ShortestPathBuilder::createRoutingTable);
+        var parallel = new Network(new RouterMapper(), routerDTOs, ShortestPathBuilder::createRoutingTable);
+        var sequentialPackets = randomPackets(400, 144, 7L);
+        var parallelPackets = randomPackets(400, 144, 7L);
+
+
+        sequential.beingPacketTransmission(sequentialPackets);
+        parallel.beingParallelPacketTransmission(parallelPackets, 4);
+
+
+        for (int i = 0; i < parallelPackets.size(); i++) {
+            assertThat(parallelPackets.get(i).getState()).isEqualTo(Packet.State.DELIVERED);
+            assertThat(parallelPackets.get(i).getPath()).isEqualTo(sequentialPackets.get(i).getPath());
+        }
+    }
+
+    @Test
+    public void drops_packets_from_unknown_sources() {
+        var network = new Network(new RouterMapper(), gridRouterDTOs(2), ShortestPathBuilder::createRoutingTable);
+        var packets = List.of(new Packet(1L, 99L, 1L));
+
+        network.beingParallelPacketTransmission(packets, 2);
+
+        assertThat(packets.get(0).getState()).isEqualTo(Packet.State.DROPPED);
+    }
+
+    @Test
+    public void errors_when_routing_table_is_not_converged() {
+        var network = new Network(new RouterMapper(), gridRouterDTOs(2));
+
+        assertThatThrownBy(() -> network.beingParallelPacketTransmission(List.of(new Packet(1L, 1L, 4L)), 2))
+                .isExactlyInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("network: routing table has to be converged before parallel transmission");
+    }
+
+    private static List<RouterDTO> gridRouterDTOs(int side) {
+        var routerDTOs = new ArrayList<RouterDTO>();
+        long connectionId = 1L;
+        for (int row = 0; row < side; row++)
+            for (int column = 0; column < side; column++) {
+                long router = row * side + column + 1;
+                var connections = new ArrayList<ConnectionDTO>();
+                if (column > 0)
+                    connections.add(new ConnectionDTO(connectionId++, 1 + (int)(router % 3), router, router - 1));
+                if (column < side - 1)
+                    connections.add(new ConnectionDTO(connectionId++, 1 + (int)(router % 3), router, router + 1));
+                if (row > 0)
+                    connections.add(new ConnectionDTO(connectionId++, 2, router, router - side));
+                if (row < side - 1)
+                    connections.add(new ConnectionDTO(connectionId++, 2, router, router + side));
+                routerDTOs.add(new RouterDTO(router, connections));
+            }
+        return routerDTOs;
+    }
+
+    private static List<Packet> randomPackets(int count, int routerCount, long seed) {
+        var random = new Random(seed);
+        var packets = new ArrayList<Packet>();
+        for (long id = 1; id <= count; id++)
+            packets.add(new Packet(id, 1 + random.nextInt(routerCount), 1 + random.nextInt(routerCount)));
+        return packets;
+    }
+}
@@ -0,0 +1,192 @@
+package ups.papersoda.netter.domain.transmission;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import ups.papersoda.netter.domain.LinkQueue;
+import ups.papersoda.netter.domain.Network;
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.Router;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.domain.routing.ShortestPathBuilder;
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class PacketSimulationTests {
+    // [[1]]--7--[[2]]--5--[[3]]
+    private final List<RouterDTO> routerDTOs = List.of(
+            new RouterDTO(1L, List.of(new ConnectionDTO(1L, 7, 1L, 2L))),
+            new RouterDTO(2L, List.of(new ConnectionDTO(2L, 5, 2L, 3L))),
+            new RouterDTO(3L, List.of())
+    );
+
+    @Test
+    public void delivers_packet_after_sum_of_link_latencies() {
+        var network = new Network(new RouterMapper(), routerDTOs, ShortestPathBuilder::createRoutingTable);
+        var early = new Packet(1L, 1L, 3L);
+        var late = new Packet(2L, 2L, 3L);
+        late.setSentTime(100L);
+
+
+        long lastArrival = network.beingSimulatedPacketTransmission(List.of(late, early));
+
+
+        assertThat(early.getDeliveryTime()).isEqualTo(12L);
+        assertThat(early.getPath()).isEqualTo(List.of(1L, 2L, 3L));
+        assertThat(late.getDeliveryTime()).isEqualTo(105L);
+        assertThat(lastArrival).isEqualTo(105L);
+    }
+
+    @Test
+    public void uses_latency_over_weight_when_set() {
+        var network = new Network(new RouterMapper(), routerDTOs, ShortestPathBuilder::createRoutingTable);
+        network.getRouter(1L).getNeighbour(2L).getValue().setLatency(1);
+        var packet = new Packet(1L, 1L, 3L);
+
+        network.beingSimulatedPacketTransmission(List.of(packet));
+
+        assertThat(packet.getDeliveryTime()).isEqualTo(6L);
+    }
+
+    @Test
+    public void runs_until_given_time_only() {
+        var network = new Network(new RouterMapper(), routerDTOs, ShortestPathBuilder::createRoutingTable);
+        var simulation = network.createSimulation();
+        var packet = new Packet(1L, 1L, 3L);
+        simulation.inject(packet);
+
+        simulation.runUntil(10L);
+
+        assertThat(packet.getPath()).isEqualTo(List.of(1L, 2L));
+        assertThat(packet.getDeliveryTime()).isEqualTo(Packet.NOT_DELIVERED);
+        assertThat(simulation.getPendingEvents()).isEqualTo(1);
+
+        simulation.run();
+
+        assertThat(packet.getDeliveryTime()).isEqualTo(12L);
+        assertThat(simulation.getProcessedEvents()).isEqualTo(3L);
+    }
+
+    @Test
+    public void errors_when_packet_is_injected_in_the_past() {
+        var network = new Network(new RouterMapper(), routerDTOs, ShortestPathBuilder::createRoutingTable);
+        var simulation = network.createSimulation();
+        var packet = new Packet(1L, 1L, 3L);
+        packet.setSentTime(20L);
+        simulation.inject(packet);
+        simulation.run();
+
+        assertThatThrownBy(() -> simulation.inject(new Packet(2L, 1L, 3L)))
+                .isExactlyInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("simulation: packet 2 was sent before current time 32");
+    }
+
+    @Nested
+    class LinkQueues {
+        private final Network network = new Network(new RouterMapper(), routerDTOs, ShortestPathBuilder::createRoutingTable);
+        private final List<Packet> packets = List.of(packet(1L), packet(2L), packet(3L));
+
+        private Packet packet(final long id) {
+            var packet = new Packet(id, 1L, 3L);
+            packet.setPayload(ByteBuffer.allocate(4));
+            return packet;
+        }
+
+        private LinkQueue setQueue(final LinkQueue queue) {
+            network.getRouter(1L).getNeighbour(2L).getValue().setQueue(queue);
+            return queue;
+        }
+
+        @Test
+        public void sends_packets_one_after_another_at_link_bandwidth() {
+            var queue = setQueue(LinkQueue.tailDrop(1, 10));
+
+            network.beingSimulatedPacketTransmission(packets);
+
+            assertThat(packets).extracting(Packet::getDeliveryTime).containsExactly(16L, 20L, 24L);
+            assertThat(queue.getMaxDepth()).isEqualTo(3);
+            assertThat(queue.getUtilisation(12L)).isEqualTo(1.0);
+            assertThat(queue.getUtilisation(24L)).isEqualTo(0.5);
+        }
+
+        @Test
+        public void drops_packets_arriving_at_full_queue() {
+            var queue = setQueue(LinkQueue.tailDrop(1, 2));
+
+            network.beingSimulatedPacketTransmission(packets);
+
+            assertThat(packets).extracting(Packet::getState)
+                    .containsExactly(Packet.State.DELIVERED, Packet.State.DELIVERED, Packet.State.DROPPED);
+            assertThat(packets.get(2).getPath()).isEqualTo(List.of(1L));
+            assertThat(queue.getDroppedPackets()).isEqualTo(1L);
+            assertThat(network.getRouter(1L).getDroppedPackets()).isEqualTo(1L);
+            assertThat(network.getRouter(1L).getForwardedPackets()).isEqualTo(2L);
+            assertThat(network.getRouter(1L).getNeighbour(2L).getValue().getTransferredPackets()).isEqualTo(2L);
+            assertThat(network.getRouter(1L).getNeighbour(2L).getValue().getTransferredBytes()).isEqualTo(8L);
+            assertThat(packets.get(2).getPathWeight()).isZero();
+        }
+
+        @Test
+        public void holds_packets_back_at_sender_under_backpressure() {
+            var queue = setQueue(LinkQueue.backpressure(1, 1));
+            var simulation = network.createSimulation();
+            simulation.inject(packets);
+
+            simulation.runUntil(0L);
+
+            assertThat(queue.getDepth()).isEqualTo(1);
+            assertThat(queue.getBlockedPackets()).isEqualTo(2L);
+
+            simulation.run();
+
+            assertThat(packets).extracting(Packet::getDeliveryTime).containsExactly(16L, 20L, 24L);
+            assertThat(packets).extracting(Packet::getPath).containsOnly(List.of(1L, 2L, 3L));
+            assertThat(queue.getMaxDepth()).isEqualTo(1);
+            assertThat(queue.getDroppedPackets()).isZero();
+        }
+    }
+
+    @Nested
+    class Events {
+        @Test
+        public void polls_events_in_time_then_scheduling_order() {
+            var events = new EventQueue();
+            var random = new Random(3L);
+            var router = new Router(1L, Map.of());
+            var expected = new ArrayList<long[]>();
+            for (long id = 0; id < 5000; id++) {
+                long time = random.nextInt(200);
+                events.schedule(time, router, new Packet(id, 1L, 1L));
+                expected.add(new long[]{ time, id });
+            }
+            expected.sort(Comparator.<long[]>comparingLong(e -> e[0]).thenComparingLong(e -> e[1]));
+
+            for (long[] event : expected) {
+                int slot = events.poll();
+                assertThat(events.time(slot)).isEqualTo(event[0]);
+                assertThat(events.packet(slot).getId()).isEqualTo(event[1]);
+            }
+            assertThat(events.isEmpty()).isTrue();
+        }
+
+        @Test
+        public void drops_references_of_polled_events() {
+            var events = new EventQueue();
+            var router = new Router(1L, Map.of());
+            events.schedule(1L, router, new Packet(1L, 1L, 1L));
+            events.schedule(2L, router, new Packet(2L, 1L, 1L));
+
+            int first = events.poll();
+            assertThat(events.packet(first).getId()).isEqualTo(1L);
+            int second = events.poll();
+
+            assertThat(events.packet(first)).isNull();
+            assertThat(events.router(first)).isNull();
+            assertThat(events.packet(second).getId()).isEqualTo(2L);
+        }
+    }
+}
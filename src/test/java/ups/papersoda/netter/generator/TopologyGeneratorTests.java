@@ -0,0 +1,104 @@
+package ups.papersoda.netter.generator;
+
+import org.junit.jupiter.api.Test;
+import ups.papersoda.netter.domain.DenseRoutingTable;
+import ups.papersoda.netter.domain.IRoutingTable;
+import ups.papersoda.netter.domain.mapper.IndexedRouterMapper;
+import ups.papersoda.netter.domain.routing.WorklistConvergence;
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class TopologyGeneratorTests {
+    @Test
+    public void generates_shapes_with_expected_link_counts() {
+        var generator = new TopologyGenerator(1L);
+
+        assertThat(linkCount(generator.ring(10))).isEqualTo(10);
+        assertThat(linkCount(generator.grid(4, 3))).isEqualTo(3 * 3 + 4 * 2);
+        assertThat(linkCount(generator.torus(4, 3))).isEqualTo(2 * 12);
+        assertThat(linkCount(generator.barabasiAlbert(50, 2))).isEqualTo(3 + 2 * 47);
+        // k = 4: 4 core, 8 aggregation and 8 edge routers, 16 core and 16 pod links
+        assertThat(generator.fatTree(4)).hasSize(20);
+        assertThat(linkCount(generator.fatTree(4))).isEqualTo(32);
+        assertThat(linkCount(generator.erdosRenyi(20, 1))).isEqualTo(20 * 19 / 2);
+        assertThat(linkCount(generator.erdosRenyi(20, 0))).isZero();
+    }
+
+    @Test
+    public void random_graph_averages_expected_link_count() {
+        var generator = new TopologyGenerator(5L);
+        int size = 2000;
+        for (double meanDegree : new double[]{ 0.1, 1, 4 }) {
+            double probability = meanDegree / size;
+            double expected = probability * size * (size - 1) / 2;
+            long links = 0;
+            for (int run = 0; run < 20; run++)
+                links += linkCount(generator.erdosRenyi(size, probability));
+
+            assertThat(links / 20.0).as("mean links at p*n = %s", meanDegree).isCloseTo(expected, withinPercentage(10));
+        }
+    }
+
+    @Test
+    public void links_both_ways_without_self_loops_or_duplicates() {
+        var routerDTOs = new TopologyGenerator(7L, WeightDistribution.uniform(1, 20)).erdosRenyi(200, 0.05);
+        Map<Long, RouterDTO> byId = routerDTOs.stream().collect(Collectors.toMap(RouterDTO::id, Function.identity()));
+
+        for (var routerDTO : routerDTOs) {
+            assertThat(routerDTO.getConnections()).extracting(ConnectionDTO::getToRouter)
+                    .doesNotHaveDuplicates()
+                    .doesNotContain(routerDTO.id());
+            for (var connection : routerDTO.getConnections())
+                assertThat(byId.get(connection.getToRouter()).getConnections())
+                        .anySatisfy(back -> {
+                            assertThat(back.getToRouter()).isEqualTo(routerDTO.id());
+                            assertThat(back.getWeight()).isEqualTo(connection.getWeight());
+                        });
+        }
+        assertThat(linkCount(routerDTOs)).isBetween(800, 1200);
+    }
+
+    @Test
+    public void same_seed_gives_same_topology() {
+        var first = new TopologyGenerator(3L, WeightDistribution.exponential(5)).barabasiAlbert(100, 3);
+        var second = new TopologyGenerator(3L, WeightDistribution.exponential(5)).barabasiAlbert(100, 3);
+
+        assertThat(first).usingRecursiveFieldByFieldElementComparator().isEqualTo(second);
+    }
+
+    @Test
+    public void connected_shapes_route_between_every_pair() {
+        var generator = new TopologyGenerator(5L, WeightDistribution.uniform(1, 9));
+        for (List<RouterDTO> routerDTOs : List.of(generator.fatTree(6), generator.torus(5, 5), generator.barabasiAlbert(60, 1))) {
+            var routers = new IndexedRouterMapper().transformToRouters(routerDTOs);
+            var routingTable = DenseRoutingTable.createRoutingTable(routers.values());
+            new WorklistConvergence(routingTable).converge();
+
+            for (int from = 0; from < routingTable.size(); from++)
+                for (int to = 0; to < routingTable.size(); to++)
+                    if (from != to)
+                        assertThat(routingTable.distance(from, to)).isNotEqualTo(IRoutingTable.NO_CONNECTION);
+        }
+    }
+
+    @Test
+    public void rejects_invalid_parameters() {
+        var generator = new TopologyGenerator(1L);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> generator.fatTree(3));
+        assertThatIllegalArgumentException().isThrownBy(() -> generator.erdosRenyi(10, 1.5));
+        assertThatIllegalArgumentException().isThrownBy(() -> generator.barabasiAlbert(2, 2));
+        assertThatIllegalArgumentException().isThrownBy(() -> WeightDistribution.uniform(0, 3));
+    }
+
+    private static int linkCount(final List<RouterDTO> routerDTOs) {
+        return routerDTOs.stream().mapToInt(routerDTO -> routerDTO.getConnections().size()).sum() / 2;
+    }
+}
@@ -0,0 +1,72 @@
+package ups.papersoda.netter.generator;
+
+import org.junit.jupiter.api.Test;
+import ups.papersoda.netter.domain.Packet;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class TrafficGeneratorTests {
+    private final TopologyGenerator topologies = new TopologyGenerator(11L);
+
+
+    @Test
+    public void uniform_traffic_never_sends_to_itself() {
+        var routerDTOs = topologies.ring(10);
+
+        var packets = new TrafficGenerator(1L).uniform(routerDTOs, 5_000).collect(Collectors.toList());
+
+        assertThat(packets).hasSize(5_000);
+        assertThat(packets).allSatisfy(packet -> {
+            assertThat(packet.getSourceId()).isNotEqualTo(packet.getDestId());
+            assertThat(packet.getSourceId()).isBetween(1L, 10L);
+            assertThat(packet.getDestId()).isBetween(1L, 10L);
+        });
+        assertThat(packets.get(4_999).getId()).isEqualTo(4_999L);
+        assertThat(destinationCounts(packets).values()).allSatisfy(count -> assertThat(count).isBetween(400L, 600L));
+    }
+
+    @Test
+    public void hotspot_traffic_concentrates_on_hotspots() {
+        var routerDTOs = topologies.grid(10, 10);
+
+        var packets = new TrafficGenerator(2L).hotspot(routerDTOs, 10_000, 2, 0.8).collect(Collectors.toList());
+
+        var busiestTwo = destinationCounts(packets).values().stream()
+                .sorted((a, b) -> Long.compare(b, a))
+                .limit(2)
+                .mapToLong(Long::longValue)
+                .sum();
+        assertThat(busiestTwo).isGreaterThan(8_000L);
+    }
+
+    @Test
+    public void gravity_traffic_follows_router_mass() {
+        // fat-tree k = 2: core 1 linked to aggregation 2 and 4, edge 3 below 2 and edge 5 below 4
+        var routerDTOs = topologies.fatTree(2);
+
+        var packets = new TrafficGenerator(3L).gravity(routerDTOs, 4_000).collect(Collectors.toList());
+
+        assertThat(packets).allSatisfy(packet -> assertThat(packet.getSourceId()).isNotEqualTo(packet.getDestId()));
+        var counts = destinationCounts(packets);
+        assertThat(counts.get(2L)).isGreaterThan(counts.get(3L));
+        assertThat(counts.get(4L)).isGreaterThan(counts.get(5L));
+    }
+
+    @Test
+    public void same_seed_gives_same_traffic() {
+        var routerDTOs = topologies.torus(6, 6);
+
+        var first = new TrafficGenerator(9L).gravity(routerDTOs, 100).map(Packet::getDestId).collect(Collectors.toList());
+        var second = new TrafficGenerator(9L).gravity(routerDTOs, 100).map(Packet::getDestId).collect(Collectors.toList());
+
+        assertThat(first).isEqualTo(second);
+    }
+
+    private static Map<Long, Long> destinationCounts(final List<Packet> packets) {
+        return packets.stream().collect(Collectors.groupingBy(Packet::getDestId, Collectors.counting()));
+    }
+}
@@ -0,0 +1,135 @@
+package ups.papersoda.netter.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ups.papersoda.netter.domain.Connection;
+import ups.papersoda.netter.domain.Network;
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.mapper.IndexedRouterMapper;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.domain.routing.ShortestPathBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class MappedEdgeListTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void reads_csv_connections_skipping_header_comments_and_blank_lines() throws Exception {
+        var file = directory.resolve("edges.csv");
+        Files.writeString(file, "from,to,weight\n1,2,5\r\n\n# backbone\n2,3,-1,40\n3,1,7");
+
+        var connections = new ArrayList<String>();
+        try (var edges = MappedEdgeList.csv(file)) {
+            edges.forEachConnection((id, from, to, weight) -> connections.add(id + ":" + from + "-" + to + "=" + weight));
+        }
+
+        assertThat(connections).containsExactly("1:1-2=5", "40:2-3=-1", "3:3-1=7");
+    }
+
+    @Test
+    public void errors_on_malformed_csv_line() throws Exception {
+        var file = directory.resolve("edges.csv");
+        Files.writeString(file, "1,2,5\n2,x,3\n");
+
+        try (var edges = MappedEdgeList.csv(file)) {
+            assertThatThrownBy(() -> edges.forEachConnection((id, from, to, weight) -> {}))
+                    .isExactlyInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("edge list: malformed line 2");
+        }
+    }
+
+    @Test
+    public void ends_field_at_whitespace() throws Exception {
+        var file = directory.resolve("edges.csv");
+        Files.writeString(file, " 1 , 2,\t5 \n12 34,2,3\n");
+
+        var connections = new ArrayList<String>();
+        try (var edges = MappedEdgeList.csv(file)) {
+            assertThatThrownBy(() -> edges.forEachConnection((id, from, to, weight) -> connections.add(from + "-" + to + "=" + weight)))
+                    .isExactlyInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("edge list: malformed line 2");
+        }
+        assertThat(connections).containsExactly("1-2=5");
+    }
+
+    @Test
+    public void errors_when_id_overflows_long() throws Exception {
+        var file = directory.resolve("edges.csv");
+        Files.writeString(file, "9223372036854775807,1,1\n9223372036854775808,1,1\n");
+
+        try (var edges = MappedEdgeList.csv(file)) {
+            assertThatThrownBy(() -> edges.forEachConnection((id, from, to, weight) -> {}))
+                    .isExactlyInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("edge list: number overflows a long on line 2");
+        }
+    }
+
+    @Test
+    public void binary_edge_list_round_trips_csv_connections() throws Exception {
+        var csv = directory.resolve("edges.csv");
+        var binary = directory.resolve("edges.bin");
+        Files.writeString(csv, "1,2,5\n2,3,4,9\n3,1,7\n");
+
+        try (var edges = MappedEdgeList.csv(csv)) {
+            MappedEdgeList.writeBinary(edges, binary);
+        }
+        var connections = new ArrayList<String>();
+        try (var edges = MappedEdgeList.binary(binary)) {
+            edges.forEachConnection((id, from, to, weight) -> connections.add(id + ":" + from + "-" + to + "=" + weight));
+        }
+
+        assertThat(Files.size(binary)).isEqualTo(MappedEdgeList.HEADER_SIZE + 3 * MappedEdgeList.RECORD_SIZE);
+        assertThat(connections).containsExactly("1:1-2=5", "9:2-3=4", "3:3-1=7");
+    }
+
+    @Test
+    public void errors_when_file_is_not_binary_edge_list() throws Exception {
+        var file = directory.resolve("edges.bin");
+        Files.write(file, new byte[MappedEdgeList.HEADER_SIZE + MappedEdgeList.RECORD_SIZE]);
+
+        assertThatThrownBy(() -> MappedEdgeList.binary(file))
+                .isExactlyInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("is not a binary edge list");
+    }
+
+    @Test
+    public void streaming_mapper_builds_same_routers_as_dto_mapping() throws Exception {
+        var file = directory.resolve("edges.csv");
+        Files.writeString(file, "1,2,5\n1,2,9\n2,3,4\n3,4,1\n4,1,2\n");
+
+        try (var edges = MappedEdgeList.csv(file)) {
+            var routers = new IndexedRouterMapper().transformToRouters(edges);
+            var expected = new RouterMapper().transformToRouters(edges);
+
+            assertThat(routers).containsOnlyKeys(1L, 2L, 3L, 4L);
+            assertThat(routers).containsOnlyKeys(expected.keySet());
+            assertThat(routers.get(1L).neighbourCount()).isEqualTo(1);
+            assertThat(routers.get(1L).getNeighbour(2L).getValue()).isEqualTo(new Connection(5, 2L, 1L));
+            assertThat(routers.get(1L).getNeighbour(2L).getValue().getId()).isEqualTo(1L);
+            routers.forEach((id, router) ->
+                    assertThat(router.getNeighbours()).isEqualTo(expected.get(id).getNeighbours()));
+        }
+    }
+
+    @Test
+    public void network_delivers_over_mapped_topology() throws Exception {
+        var file = directory.resolve("edges.csv");
+        Files.writeString(file, "1,2,1\n2,3,1\n3,4,1\n");
+        var packet = new Packet(1L, 1L, 4L);
+
+        try (var edges = MappedEdgeList.csv(file)) {
+            var network = new Network(new IndexedRouterMapper(), edges, ShortestPathBuilder::createRoutingTable);
+            network.beingPacketTransmission(List.of(packet));
+        }
+
+        assertThat(packet.getState()).isEqualTo(Packet.State.DELIVERED);
+        assertThat(packet.getPath()).containsExactly(1L, 2L, 3L, 4L);
+    }
+}
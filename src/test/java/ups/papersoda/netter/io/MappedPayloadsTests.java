@@ -0,0 +1,42 @@
+package ups.papersoda.netter.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ups.papersoda.netter.domain.Packet;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class MappedPayloadsTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void attaches_slices_of_mapped_file() throws Exception {
+        var file = directory.resolve("payloads.bin");
+        Files.write(file, new byte[]{ 1, 2, 3, 4, 5, 6, 7, 8 });
+        var packet = new Packet(1L, 1L, 2L);
+
+        try (var payloads = new MappedPayloads(file)) {
+            payloads.attach(packet, 2, 3);
+        }
+
+        var payload = packet.getPayload();
+        assertThat(packet.getPayloadSize()).isEqualTo(3);
+        assertThat(new byte[]{ payload.get(0), payload.get(1), payload.get(2) }).containsExactly(3, 4, 5);
+    }
+
+    @Test
+    public void errors_when_slice_is_outside_file() throws Exception {
+        var file = directory.resolve("payloads.bin");
+        Files.write(file, new byte[4]);
+
+        try (var payloads = new MappedPayloads(file)) {
+            assertThatThrownBy(() -> payloads.slice(2, 3))
+                    .isExactlyInstanceOf(IndexOutOfBoundsException.class)
+                    .hasMessageContaining("mapped payloads: 3 bytes at 2 outside file of 4 bytes");
+        }
+    }
+}
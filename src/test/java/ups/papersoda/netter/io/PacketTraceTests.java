@@ -0,0 +1,184 @@
+package ups.papersoda.netter.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ups.papersoda.netter.domain.DenseRoutingTable;
+import ups.papersoda.netter.domain.Network;
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.mapper.IndexedRouterMapper;
+import ups.papersoda.netter.generator.TopologyGenerator;
+import ups.papersoda.netter.generator.TrafficGenerator;
+import ups.papersoda.netter.generator.WeightDistribution;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class PacketTraceTests {
+    @TempDir
+    Path directory;
+
+
+    @Test
+    public void reads_back_what_the_network_recorded() throws IOException {
+        var routerDTOs = new TopologyGenerator(4L, WeightDistribution.uniform(1, 5)).torus(8, 8);
+        var network = new Network(new IndexedRouterMapper(), routerDTOs, DenseRoutingTable::createRoutingTable);
+        network.convergeRoutingTable();
+        var packets = new TrafficGenerator(5L).uniform(routerDTOs, 20_000).collect(Collectors.toList());
+        packets.forEach(packet -> packet.setSentTime(packet.getId() * 3));
+        packets.get(0).setPayload(ByteBuffer.allocate(40));
+        var file = directory.resolve("trace.bin");
+
+        // small buffers make the writer hand off many times, enough of them that none is discarded
+        try (var writer = new PacketTraceWriter(file, 4096, 256)) {
+            network.setPacketListener(writer);
+            network.beingSimulatedPacketTransmission(packets);
+            assertThat(writer.getRecords()).isEqualTo(20_000);
+            assertThat(writer.getDiscardedRecords()).isZero();
+        }
+
+        var traces = new ArrayList<PacketTrace>();
+        try (var reader = new PacketTraceReader(file)) {
+            var trace = new PacketTrace();
+            while (reader.next(trace))
+                traces.add(copy(trace));
+        }
+
+        assertThat(traces).hasSize(20_000);
+        var byId = packets.stream().collect(Collectors.toMap(Packet::getId, packet -> packet));
+        for (var trace : traces) {
+            var packet = byId.get(trace.getPacketId());
+            assertThat(trace.getSourceId()).isEqualTo(packet.getSourceId());
+            assertThat(trace.getDestId()).isEqualTo(packet.getDestId());
+            assertThat(trace.getState()).isEqualTo(packet.getState());
+            assertThat(trace.getSentTime()).isEqualTo(packet.getSentTime());
+            assertThat(trace.getDeliveryTime()).isEqualTo(packet.getDeliveryTime());
+            assertThat(trace.getPayloadSize()).isEqualTo(packet.getPayloadSize());
+            assertThat(trace.copyPath()).containsExactly(packet.getPath().stream().mapToLong(Long::longValue).toArray());
+        }
+        // a few bytes per hop instead of eight
+        assertThat(Files.size(file)).isLessThan(20_000L * 24);
+    }
+
+    @Test
+    public void threads_record_without_sharing_a_buffer() throws Exception {
+        var file = directory.resolve("trace.bin");
+        var threads = new ArrayList<Thread>();
+        try (var writer = new PacketTraceWriter(file, 4096, 64)) {
+            for (long thread = 0; thread < 4; thread++) {
+                var first = thread * 10_000;
+                threads.add(new Thread(() -> {
+                    for (long id = first; id < first + 5_000; id++) {
+                        var packet = new Packet(id, id % 50, 7L);
+                        packet.addToPath(id % 50);
+                        packet.addToPath(7L);
+                        writer.record(packet);
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads)
+                thread.join();
+            assertThat(writer.getRecords() + writer.getDiscardedRecords()).isEqualTo(20_000);
+        }
+
+        var ids = new ArrayList<Long>();
+        try (var reader = new PacketTraceReader(file)) {
+            reader.forEach(trace -> {
+                assertThat(trace.getSourceId()).isEqualTo(trace.getPacketId() % 50);
+                assertThat(trace.copyPath()).containsExactly(trace.getPacketId() % 50, 7L);
+                ids.add(trace.getPacketId());
+            });
+        }
+        assertThat(ids).doesNotHaveDuplicates().allMatch(id -> id % 10_000 < 5_000);
+    }
+
+    @Test
+    public void writes_records_of_ended_threads_and_discards_those_after_close() throws Exception {
+        var file = directory.resolve("trace.bin");
+        var writer = new PacketTraceWriter(file, 4096, 1);
+        var ended = new Thread(() -> {
+            for (long id = 1; id <= 3; id++)
+                writer.record(new Packet(id, 1L, 2L));
+        });
+        ended.start();
+        ended.join();
+
+        writer.record(new Packet(4L, 1L, 2L));
+        writer.close();
+        var late = new Thread(() -> writer.record(new Packet(5L, 1L, 2L)));
+        late.start();
+        late.join();
+
+        assertThat(writer.getRecords()).isEqualTo(4);
+        assertThat(writer.getDiscardedRecords()).isEqualTo(1);
+        var ids = new ArrayList<Long>();
+        try (var reader = new PacketTraceReader(file)) {
+            reader.forEach(trace -> ids.add(trace.getPacketId()));
+        }
+        assertThat(ids).containsExactlyInAnyOrder(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    public void discards_records_instead_of_failing_forwarding() throws IOException {
+        var file = directory.resolve("trace.bin");
+        var writer = new PacketTraceWriter(file, 4096, 1);
+        var longPath = new Packet(1L, 1L, 2L);
+        for (long router = 0; router < 1_000; router++)
+            longPath.addToPath(router);
+
+        writer.record(longPath);
+        writer.close();
+        writer.record(new Packet(2L, 1L, 2L));
+
+        assertThat(writer.getRecords()).isZero();
+        assertThat(writer.getDiscardedRecords()).isEqualTo(2);
+    }
+
+    @Test
+    public void rejects_truncated_trace() throws IOException {
+        var file = directory.resolve("trace.bin");
+        try (var writer = new PacketTraceWriter(file)) {
+            var packet = new Packet(1L, 1L, 300L);
+            for (long router = 1; router <= 300; router += 100)
+                packet.addToPath(router);
+            writer.record(packet);
+        }
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        try (var reader = new PacketTraceReader(file)) {
+            assertThatIllegalArgumentException()
+                    .isThrownBy(() -> reader.forEach(trace -> {}))
+                    .withMessageContaining("is truncated");
+        }
+    }
+
+    @Test
+    public void rejects_other_files() throws IOException {
+        var file = directory.resolve("other.bin");
+        Files.write(file, List.of("from,to,weight"));
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new PacketTraceReader(file))
+                .withMessageContaining("is not a packet trace");
+    }
+
+    private static PacketTrace copy(final PacketTrace trace) {
+        var copy = new PacketTrace();
+        copy.reset(trace.getPacketId(), trace.getSourceId(), trace.getDestId(), trace.getState(),
+                trace.getSentTime(), trace.getDeliveryTime(), trace.getPayloadSize());
+        for (long router : trace.copyPath())
+            copy.addToPath(router);
+        return copy;
+    }
+}
@@ -0,0 +1,124 @@
+package ups.papersoda.netter.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ups.papersoda.netter.domain.Network;
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.domain.routing.ShortestPathBuilder;
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class RoutingTableSnapshotTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void restores_converged_table() throws Exception {
+        var file = directory.resolve("routes.bin");
+        var routers = new RouterMapper().transformToRouters(routerDTOs(40, 11L));
+        var routingTable = ShortestPathBuilder.createRoutingTable(routers.values());
+        routingTable.removeRouter(7L);
+        routingTable.markConverged();
+
+        RoutingTableSnapshot.save(routingTable, file);
+        var reversed = new ArrayList<>(routers.values());
+        Collections.reverse(reversed);
+        var restored = RoutingTableSnapshot.load(file, reversed);
+
+        assertThat(restored).isEqualTo(routingTable);
+        assertThat(restored.isConverged()).isTrue();
+        assertThat(restored.hasRouter(7L)).isFalse();
+        for (long from : restored.getRouterIds())
+            for (long to : restored.getRouterIds())
+                assertThat(restored.getNextShortestPathRouter(from, to))
+                        .isEqualTo(routingTable.getNextShortestPathRouter(from, to));
+    }
+
+    @Test
+    public void restores_table_saved_after_bond_update() throws Exception {
+        var file = directory.resolve("routes.bin");
+        var routers = new RouterMapper().transformToRouters(routerDTOs(30, 3L));
+        var routingTable = ShortestPathBuilder.createRoutingTable(routers.values());
+        routingTable.markConverged();
+        var router = routers.get(4L);
+        var neighbour = router.getNeighbours().iterator().next();
+        routingTable.updateRouterBond(4L, neighbour, 1000);
+
+        RoutingTableSnapshot.save(routingTable, file);
+        var restored = RoutingTableSnapshot.load(file, routers.values());
+
+        assertThat(restored).isEqualTo(routingTable);
+        var graph = restored.getGraph();
+        for (int arc = 0; arc < graph.arcCount(); arc++)
+            assertThat(restored.linkWeight(arc)).isEqualTo(routingTable.linkWeight(arc));
+        for (long from : restored.getRouterIds())
+            for (long to : restored.getRouterIds())
+                assertThat(restored.getNextHop(routers.get(from), new Packet(1L, from, to)))
+                        .isEqualTo(routingTable.getNextHop(routers.get(from), new Packet(1L, from, to)));
+    }
+
+    @Test
+    public void refuses_snapshot_of_different_topology() throws Exception {
+        var file = directory.resolve("routes.bin");
+        var routerDTOs = routerDTOs(20, 5L);
+        var routers = new RouterMapper().transformToRouters(routerDTOs);
+        RoutingTableSnapshot.save(ShortestPathBuilder.createRoutingTable(routers.values()), file);
+
+        routerDTOs.get(3).getConnections().get(0).setWeight(100);
+        var changed = new RouterMapper().transformToRouters(routerDTOs);
+
+        assertThatThrownBy(() -> RoutingTableSnapshot.load(file, changed.values()))
+                .isExactlyInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("was saved for a different topology");
+    }
+
+    @Test
+    public void refuses_file_that_is_not_snapshot() throws Exception {
+        var file = directory.resolve("routes.bin");
+        Files.write(file, new byte[64]);
+        var routers = new RouterMapper().transformToRouters(routerDTOs(4, 1L));
+
+        assertThatThrownBy(() -> RoutingTableSnapshot.load(file, routers.values()))
+                .isExactlyInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("is not a routing table snapshot");
+    }
+
+    @Test
+    public void network_restored_from_snapshot_forwards_without_converging() throws Exception {
+        var file = directory.resolve("routes.bin");
+        var routerDTOs = routerDTOs(30, 3L);
+        var built = new Network(new RouterMapper(), routerDTOs, ShortestPathBuilder::createRoutingTable);
+        RoutingTableSnapshot.save(ShortestPathBuilder.createRoutingTable(
+                new RouterMapper().transformToRouters(routerDTOs).values()), file);
+
+        var network = new Network(new RouterMapper(), routerDTOs, RoutingTableSnapshot.factory(file));
+        var packet = new Packet(1L, 1L, 30L);
+        var expected = new Packet(1L, 1L, 30L);
+        network.beingPacketTransmission(List.of(packet));
+        built.beingPacketTransmission(List.of(expected));
+
+        assertThat(network.getRoutingTable().isConverged()).isTrue();
+        assertThat(packet.getState()).isEqualTo(expected.getState());
+        assertThat(packet.getPath()).isEqualTo(expected.getPath());
+    }
+
+    private static List<RouterDTO> routerDTOs(int routerCount, long seed) {
+        var random = new Random(seed);
+        var routerDTOs = new ArrayList<RouterDTO>();
+        long connectionId = 1L;
+        for (long router = 1; router <= routerCount; router++) {
+            var connections = new ArrayList<ConnectionDTO>();
+            connections.add(new ConnectionDTO(connectionId++, 1 + random.nextInt(9), router, router % routerCount + 1));
+            connections.add(new ConnectionDTO(connectionId++, 1 + random.nextInt(9), router, 1 + random.nextInt(routerCount)));
+            routerDTOs.add(new RouterDTO(router, connections));
+        }
+        return routerDTOs;
+    }
+}
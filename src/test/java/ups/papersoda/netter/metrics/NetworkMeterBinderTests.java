@@ -0,0 +1,121 @@
+package ups.papersoda.netter.metrics;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ups.papersoda.netter.domain.DenseRoutingTable;
+import ups.papersoda.netter.domain.LinkQueue;
+import ups.papersoda.netter.domain.Network;
+import ups.papersoda.netter.domain.Packet;
+import ups.papersoda.netter.domain.mapper.RouterMapper;
+import ups.papersoda.netter.dto.ConnectionDTO;
+import ups.papersoda.netter.dto.RouterDTO;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class NetworkMeterBinderTests {
+    @Test
+    public void publishes_router_connection_and_path_metrics() {
+        // [[1]]--1-->[[2]]--1-->[[3]], [[1]]--5-->[[3]]; 1 reaches 3 over 2
+        var network = new Network(new RouterMapper(), List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 1, 1L, 2L), new ConnectionDTO(2L, 5, 1L, 3L))),
+                new RouterDTO(2L, List.of(new ConnectionDTO(3L, 1, 2L, 3L))),
+                new RouterDTO(3L, List.of())
+        ), DenseRoutingTable::createRoutingTable);
+        network.convergeRoutingTable();
+        network.getMetrics().setStretchSampling(1);
+        var registry = new SimpleMeterRegistry();
+        new NetworkMeterBinder(network, Tags.empty(), true).bindTo(registry);
+
+        var packet = new Packet(1L, 1L, 3L);
+        packet.setPayload(ByteBuffer.allocate(10));
+        network.beingPacketTransmission(List.of(packet, new Packet(2L, 3L, 1L)));
+
+        assertThat(registry.get("netter.router.packets").tags("router", "1", "outcome", "forwarded").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("netter.router.packets").tags("router", "3", "outcome", "delivered").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("netter.router.packets").tags("router", "3", "outcome", "dropped").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("netter.connection.bytes").tags("connection", "3").functionCounter().count()).isEqualTo(10);
+        assertThat(registry.get("netter.connection.packets").tags("connection", "2").functionCounter().count()).isZero();
+        assertThat(registry.get("netter.packet.hops").tags("quantile", "1.0").gauge().value()).isEqualTo(2);
+        assertThat(registry.get("netter.packet.stretch").tags("quantile", "0.5").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("netter.convergence").functionTimer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void publishes_link_queue_metrics() {
+        // [[1]]--1-->[[2]]
+        var network = new Network(new RouterMapper(), List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 1, 1L, 2L))),
+                new RouterDTO(2L, List.of())
+        ), DenseRoutingTable::createRoutingTable);
+        network.convergeRoutingTable();
+        network.setLinkQueues(connection -> LinkQueue.tailDrop(1, 1));
+        var registry = new SimpleMeterRegistry();
+        new NetworkMeterBinder(network, Tags.empty(), true).bindTo(registry);
+
+        var late = new Packet(3L, 1L, 2L);
+        late.setSentTime(5L);
+        network.beingSimulatedPacketTransmission(List.of(new Packet(1L, 1L, 2L), new Packet(2L, 1L, 2L), late));
+
+        assertThat(registry.get("netter.connection.queue.packets").tags("connection", "1", "outcome", "dropped").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("netter.connection.queue.depth.max").tags("connection", "1").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("netter.connection.utilisation").tags("connection", "1").gauge().value()).isEqualTo(0.2);
+    }
+
+    @Test
+    public void publishes_network_totals_only_by_default() {
+        // [[1]]--1-->[[2]]--1-->[[3]]
+        var network = new Network(new RouterMapper(), List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 1, 1L, 2L))),
+                new RouterDTO(2L, List.of(new ConnectionDTO(2L, 1, 2L, 3L))),
+                new RouterDTO(3L, List.of())
+        ), DenseRoutingTable::createRoutingTable);
+        network.convergeRoutingTable();
+        var registry = new SimpleMeterRegistry();
+        new NetworkMeterBinder(network).bindTo(registry);
+
+        var packet = new Packet(1L, 1L, 3L);
+        packet.setPayload(ByteBuffer.allocate(10));
+        network.beingPacketTransmission(List.of(packet, new Packet(2L, 3L, 1L)));
+
+        assertThat(registry.get("netter.network.packets").tags("outcome", "forwarded").functionCounter().count()).isEqualTo(2);
+        assertThat(registry.get("netter.network.packets").tags("outcome", "delivered").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("netter.network.packets").tags("outcome", "dropped").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("netter.network.link.bytes").functionCounter().count()).isEqualTo(20);
+        assertThat(registry.find("netter.router.packets").meters()).isEmpty();
+        assertThat(registry.find("netter.connection.packets").meters()).isEmpty();
+    }
+
+    @Test
+    public void measures_stretch_by_routing_table_weights() {
+        // [[1]]--1-->[[2]]--1-->[[3]], [[1]]--5-->[[3]]; 1 keeps reaching 3 over 2 once 1-2 weighs 3
+        var network = new Network(new RouterMapper(), List.of(
+                new RouterDTO(1L, List.of(new ConnectionDTO(1L, 1, 1L, 2L), new ConnectionDTO(2L, 5, 1L, 3L))),
+                new RouterDTO(2L, List.of(new ConnectionDTO(3L, 1, 2L, 3L))),
+                new RouterDTO(3L, List.of())
+        ), DenseRoutingTable::createRoutingTable);
+        network.convergeRoutingTable();
+        network.getRoutingTable().updateRouterBond(1L, 2L, 3);
+        network.getMetrics().setStretchSampling(1);
+        var registry = new SimpleMeterRegistry();
+        new NetworkMeterBinder(network).bindTo(registry);
+
+        var packet = new Packet(1L, 1L, 3L);
+        network.beingPacketTransmission(List.of(packet));
+
+        assertThat(packet.getPath()).containsExactly(1L, 2L, 3L);
+        assertThat(registry.get("netter.packet.stretch").tags("quantile", "0.5").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    public void samples_stretch_of_some_deliveries() {
+        var metrics = new NetworkMetrics();
+        var sampled = LongStream.range(0, 64_000).filter(metrics::samplesStretch).count();
+
+        assertThat(sampled).isBetween(800L, 1200L);
+    }
+}
@@ -0,0 +1,33 @@
+package ups.papersoda.netter.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class StripedHistogramTests {
+    @Test
+    public void buckets_cover_values_without_gaps() {
+        for (long value = 0; value < 100_000; value++) {
+            int bucket = StripedHistogram.bucketOf(value);
+            assertThat(StripedHistogram.highestValueOf(bucket)).isGreaterThanOrEqualTo(value);
+            if (bucket > 0)
+                assertThat(StripedHistogram.highestValueOf(bucket - 1)).isLessThan(value);
+        }
+        assertThat(StripedHistogram.highestValueOf(StripedHistogram.bucketOf(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void quantiles_are_within_bucket_precision() {
+        var histogram = new StripedHistogram();
+        IntStream.rangeClosed(1, 1_000).parallel().forEach(histogram::record);
+
+        assertThat(histogram.getCount()).isEqualTo(1_000);
+        assertThat(histogram.getMax()).isEqualTo(1_000);
+        assertThat(histogram.getMean()).isEqualTo(500.5);
+        assertThat(histogram.valueAtQuantile(0.5)).isBetween(500L, 563L);
+        assertThat(histogram.valueAtQuantile(0.99)).isBetween(990L, 1_000L);
+        assertThat(histogram.valueAtQuantile(0)).isEqualTo(1);
+    }
+}